@@ -5,6 +5,8 @@ import demo.disample.sample.Product;
 import demo.disample.sample.ProductService;
 import demo.disample.sample.User;
 
+import java.util.Arrays;
+
 class Main {
 
     public void runSample() throws Exception {
@@ -20,7 +22,7 @@ class Main {
         User newUser = new User();
         newUser.setUsername("new user");
 
-        ProductService service = (ProductService) Application.getBean(ProductService.class);
+        ProductService service = Application.getBean(ProductService.class);
 
         service.saveProduct(product);
         service.deleteProduct(product);
@@ -36,6 +38,9 @@ class Main {
 
     public static void main(String[] args) throws Exception {
         Application.run();
+        // --startup-report prints where the start spent its time and the five slowest beans
+        if (Arrays.asList(args).contains("--startup-report"))
+            System.out.println(Application.getStartupReport().toString(5));
 
         Main main = new Main();
         main.runSample();
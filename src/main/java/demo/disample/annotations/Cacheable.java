@@ -0,0 +1,19 @@
+package demo.disample.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// keeps entities read by getOne in the repository, keyed by id, until they are saved, deleted or evicted
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = ElementType.TYPE)
+public @interface Cacheable {
+    int maxSize() default 10000;
+
+    // milliseconds after which a cached entity is read again, 0 keeps it until it is evicted
+    long expireAfterWrite() default 0;
+
+    // bytes of direct memory the entities are kept in, encoded; 0 keeps them on the heap. Needs an int or long id
+    long offHeapBytes() default 0;
+}
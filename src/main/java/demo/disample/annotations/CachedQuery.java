@@ -0,0 +1,17 @@
+package demo.disample.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// keeps the results of a findBy repository method by argument values until its table is written
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = ElementType.METHOD)
+public @interface CachedQuery {
+    // memory budget of the method, counted in cached rows
+    int maxRows() default 10000;
+
+    // milliseconds after which a cached result is read again, 0 keeps it until the table is written
+    long expireAfterWrite() default 0;
+}
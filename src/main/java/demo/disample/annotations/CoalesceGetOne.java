@@ -0,0 +1,17 @@
+package demo.disample.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// concurrent getOne calls of the repository are collected and read with one IN query
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = ElementType.TYPE)
+public @interface CoalesceGetOne {
+    // how long the first call of a batch waits for others
+    long windowMicros() default 200;
+
+    // a full batch is read at once, without waiting for the window
+    int maxBatchSize() default 100;
+}
@@ -2,19 +2,44 @@ package demo.disample.beans;
 
 public class Application {
 
+    private static final String DEFAULT_BASE_PACKAGE = "demo.disample";
+
     private static final BeanFactory beanFACTORY = new BeanFactory();
 
     public static void run(){
+        run(DEFAULT_BASE_PACKAGE);
+    }
+
+    public static void run(String... basePackages){
+        run(new ApplicationSettings.Builder()
+                .addBasePackages(basePackages)
+                .build());
+    }
+
+    public static void run(ApplicationSettings settings){
         try {
-            beanFACTORY.loadBeans("demo.disample");
+            beanFACTORY.loadBeans(settings);
         } catch (Exception e) {
             e.printStackTrace();
             throw new Error("APPLICATION FAILED TO START!");
         }
     }
 
-    public static Object getBean(Class clazz){
+    public static <T> T getBean(Class<T> clazz){
         return beanFACTORY.getBean(clazz);
     }
 
+    public static StartupReport getStartupReport(){
+        return beanFACTORY.getStartupReport();
+    }
+
+    public static ConnectionPoolMetrics getConnectionPoolMetrics(){
+        return beanFACTORY.getConnectionPoolMetrics();
+    }
+
+    // null when the entity is not @Cacheable or has no repository
+    public static CacheStatistics getCacheStatistics(Class entityClass){
+        return beanFACTORY.getCacheStatistics(entityClass);
+    }
+
 }
@@ -0,0 +1,278 @@
+package demo.disample.beans;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+public final class ApplicationSettings {
+    private final List<String> basePackages;
+    private final List<Predicate<String>> excludeFilters;
+    private final ClassLoader classLoader;
+    private final int parallelism;
+    private final boolean beanIndexEnabled;
+    private final boolean lazyInitialization;
+    private final Path wiringPlanFile;
+    private final int connectionPoolSize;
+    private final long connectionTimeout;
+    private final long connectionValidationInterval;
+    private final int statementCacheSize;
+    private final int batchSize;
+    private final int fetchSize;
+    private final int maxInListSize;
+    private final int queryParallelism;
+
+    private ApplicationSettings(Builder builder){
+        this.basePackages = Collections.unmodifiableList(new ArrayList<>(builder.basePackages));
+        this.excludeFilters = Collections.unmodifiableList(new ArrayList<>(builder.excludeFilters));
+        this.classLoader = builder.classLoader;
+        this.parallelism = builder.parallelism;
+        this.beanIndexEnabled = builder.beanIndexEnabled;
+        this.lazyInitialization = builder.lazyInitialization;
+        this.wiringPlanFile = builder.wiringPlanFile;
+        this.connectionPoolSize = builder.connectionPoolSize;
+        this.connectionTimeout = builder.connectionTimeout;
+        this.connectionValidationInterval = builder.connectionValidationInterval;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.batchSize = builder.batchSize;
+        this.fetchSize = builder.fetchSize;
+        this.maxInListSize = builder.maxInListSize;
+        this.queryParallelism = builder.queryParallelism;
+    }
+
+    public static class Builder{
+        private final List<String> basePackages = new ArrayList<>();
+        private final List<Predicate<String>> excludeFilters = new ArrayList<>();
+        private ClassLoader classLoader;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private boolean beanIndexEnabled = true;
+        private boolean lazyInitialization;
+        private Path wiringPlanFile;
+        private int connectionPoolSize = 10;
+        private long connectionTimeout = 30000;
+        private long connectionValidationInterval = 5000;
+        private int statementCacheSize = 64;
+        private int batchSize = QueryExecutor.DEFAULT_BATCH_SIZE;
+        private int fetchSize = QueryExecutor.DEFAULT_FETCH_SIZE;
+        private int maxInListSize = QueryExecutor.DEFAULT_MAX_IN_LIST_SIZE;
+        private int queryParallelism = QueryExecutor.DEFAULT_QUERY_PARALLELISM;
+
+        public Builder addBasePackage(String packageName){
+            if (packageName == null)
+                throw new NullPointerException("Package name is null");
+
+            this.basePackages.add(packageName);
+            return this;
+        }
+
+        public Builder addBasePackages(String... packageNames){
+            for (String packageName : packageNames) {
+                addBasePackage(packageName);
+            }
+            return this;
+        }
+
+        public Builder addExcludeFilter(Predicate<String> filter){
+            if (filter == null)
+                throw new NullPointerException("Exclude filter is null");
+
+            this.excludeFilters.add(filter);
+            return this;
+        }
+
+        public Builder addExcludePattern(String regex){
+            Pattern pattern = Pattern.compile(regex);
+            return addExcludeFilter(className -> pattern.matcher(className).matches());
+        }
+
+        public Builder addExcludePackage(String packageName){
+            String prefix = packageName + ".";
+            return addExcludeFilter(className -> className.startsWith(prefix));
+        }
+
+        public Builder setClassLoader(ClassLoader classLoader){
+            this.classLoader = classLoader;
+            return this;
+        }
+
+        public Builder setParallelism(int parallelism){
+            if (parallelism < 1)
+                throw new IllegalArgumentException("Parallelism must be positive");
+
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder setBeanIndexEnabled(boolean beanIndexEnabled){
+            this.beanIndexEnabled = beanIndexEnabled;
+            return this;
+        }
+
+        public Builder setLazyInitialization(boolean lazyInitialization){
+            this.lazyInitialization = lazyInitialization;
+            return this;
+        }
+
+        // the resolved context is written to this file on the first start and read back while the class path is unchanged
+        public Builder setWiringPlanFile(Path wiringPlanFile){
+            this.wiringPlanFile = wiringPlanFile;
+            return this;
+        }
+
+        // connections the repositories may hold at once when a DataSource bean is configured
+        public Builder setConnectionPoolSize(int connectionPoolSize){
+            if (connectionPoolSize < 1)
+                throw new IllegalArgumentException("Connection pool size must be positive");
+
+            this.connectionPoolSize = connectionPoolSize;
+            return this;
+        }
+
+        // milliseconds to wait for a free connection before the query fails
+        public Builder setConnectionTimeout(long connectionTimeout){
+            if (connectionTimeout < 0)
+                throw new IllegalArgumentException("Connection timeout must not be negative");
+
+            this.connectionTimeout = connectionTimeout;
+            return this;
+        }
+
+        // connections idle for longer than this many milliseconds are validated before they are reused
+        public Builder setConnectionValidationInterval(long connectionValidationInterval){
+            if (connectionValidationInterval < 0)
+                throw new IllegalArgumentException("Connection validation interval must not be negative");
+
+            this.connectionValidationInterval = connectionValidationInterval;
+            return this;
+        }
+
+        // prepared statements kept open per pooled connection, 0 prepares every statement again
+        public Builder setStatementCacheSize(int statementCacheSize){
+            if (statementCacheSize < 0)
+                throw new IllegalArgumentException("Statement cache size must not be negative");
+
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        // rows sent in one JDBC batch and committed together by saveAll and deleteAllById
+        public Builder setBatchSize(int batchSize){
+            if (batchSize < 1)
+                throw new IllegalArgumentException("Batch size must be positive");
+
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        // rows the driver fetches per round trip while streamAll and streamBy results are read
+        public Builder setFetchSize(int fetchSize){
+            if (fetchSize < 1)
+                throw new IllegalArgumentException("Fetch size must be positive");
+
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
+        // values bound by one query; findAllById and In conditions with more values are read in chunks
+        public Builder setMaxInListSize(int maxInListSize){
+            if (maxInListSize < 1)
+                throw new IllegalArgumentException("IN list size must be positive");
+
+            this.maxInListSize = maxInListSize;
+            return this;
+        }
+
+        // chunks of one findAllById or In query read at the same time
+        public Builder setQueryParallelism(int queryParallelism){
+            if (queryParallelism < 1)
+                throw new IllegalArgumentException("Query parallelism must be positive");
+
+            this.queryParallelism = queryParallelism;
+            return this;
+        }
+
+        public ApplicationSettings build(){
+            if (basePackages.isEmpty())
+                throw new IllegalStateException("At least one base package must be specified");
+
+            if (classLoader == null) {
+                classLoader = Thread.currentThread().getContextClassLoader();
+                if (classLoader == null)
+                    classLoader = ApplicationSettings.class.getClassLoader();
+            }
+
+            return new ApplicationSettings(this);
+        }
+    }
+
+    public List<String> getBasePackages() {
+        return basePackages;
+    }
+
+    public List<Predicate<String>> getExcludeFilters() {
+        return excludeFilters;
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isBeanIndexEnabled() {
+        return beanIndexEnabled;
+    }
+
+    public boolean isLazyInitialization() {
+        return lazyInitialization;
+    }
+
+    public Path getWiringPlanFile() {
+        return wiringPlanFile;
+    }
+
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    public long getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public long getConnectionValidationInterval() {
+        return connectionValidationInterval;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    public int getQueryParallelism() {
+        return queryParallelism;
+    }
+
+    boolean isExcluded(String className){
+        for (Predicate<String> filter : excludeFilters) {
+            if (filter.test(className))
+                return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package demo.disample.beans;
+
+import java.lang.reflect.Constructor;
+
+final class BeanDefinition {
+    private final Class beanClass;
+    private final InjectionPlan injectionPlan;
+
+    private BeanDefinition(Class beanClass, InjectionPlan injectionPlan){
+        this.beanClass = beanClass;
+        this.injectionPlan = injectionPlan;
+    }
+
+    static BeanDefinition of(Class beanClass) throws Exception {
+        return new BeanDefinition(beanClass, InjectionPlan.of(beanClass));
+    }
+
+    public Class getBeanClass() {
+        return beanClass;
+    }
+
+    public Constructor getConstructor() {
+        return injectionPlan.getConstructor();
+    }
+
+    public Class[] getDependencyTypes() {
+        return injectionPlan.getConstructor().getParameterTypes();
+    }
+
+    Object newInstance(Object[] arguments) throws Exception {
+        return injectionPlan.newInstance(arguments);
+    }
+
+    @Override
+    public String toString(){
+        return beanClass.getName();
+    }
+}
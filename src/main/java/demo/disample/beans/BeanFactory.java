@@ -1,30 +1,71 @@
 package demo.disample.beans;
 
-import demo.disample.annotations.Autowired;
+import demo.disample.annotations.CachedQuery;
+import demo.disample.annotations.CoalesceGetOne;
 import demo.disample.annotations.Component;
+import demo.disample.annotations.Lazy;
 import demo.disample.annotations.Repository;
 
-import java.io.File;
-import java.io.IOException;
+import javax.sql.DataSource;
 import java.lang.reflect.*;
-import java.net.URISyntaxException;
-import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 class BeanFactory {
     private final Map<String, Object> singletonBeans = new ConcurrentHashMap<>();
+    private final Map<String, LazyBean> lazyBeans = new ConcurrentHashMap<>();
     private final Map<Class, Class> repositoryImplementations = new ConcurrentHashMap<>();
+    private final Map<Class, Class[]> repositoryGenericTypes = new ConcurrentHashMap<>();
+    // repository instances by entity class, for the entity cache statistics
+    private final Map<Class, EntityMetadata> entityRepositories = new ConcurrentHashMap<>();
+    private volatile boolean lazyInitialization;
+    // the registry being wired; lazy beans are wired against it when they are created
+    private volatile BeanRegistry contextRegistry;
+    private volatile BeanRegistry registry;
+    private volatile StartupProfiler profiler = new StartupProfiler();
+    // shared by the repositories, connected to the DataSource bean once the beans are wired
+    private volatile QueryExecutor queryExecutor = new QueryExecutor();
+
+    public Object getBean(String beanName){
+        BeanRegistry registry = this.registry;
+        if (registry != null)
+            return registry.getBean(beanName);
 
-    public synchronized Object getBean(String beanName){
         return singletonBeans.get(beanName);
     }
 
-    public Object getBean(Class clazz){
-        return getBean(clazz.getName());
+    public <T> T getBean(Class<T> clazz){
+        BeanRegistry registry = this.registry;
+        if (registry != null)
+            return registry.getBean(clazz);
+
+        return clazz.cast(singletonBeans.get(clazz.getName()));
+    }
+
+    public StartupReport getStartupReport(){
+        return profiler.getReport();
+    }
+
+    public ConnectionPoolMetrics getConnectionPoolMetrics(){
+        ConnectionPool connectionPool = queryExecutor.getConnectionPool();
+        return connectionPool != null ? connectionPool.getMetrics() : null;
+    }
+
+    public CacheStatistics getCacheStatistics(Class entityClass){
+        EntityMetadata repository = entityRepositories.get(entityClass);
+        return repository != null ? repository.getCacheStatistics() : null;
     }
 
     private Object putBean(String beanName, Object bean){
@@ -35,73 +76,395 @@ class BeanFactory {
         return putBean(clazz.getName(), bean);
     }
 
-    private synchronized Object loadBean(Class clazz) throws IllegalAccessException, InstantiationException {
-        String className = clazz.getName();
-        if (!singletonBeans.containsKey(className)) {
-            Object bean = clazz.newInstance();
+    private Object loadBean(BeanDefinition definition, Object[] arguments) throws Exception {
+        String className = definition.getBeanClass().getName();
+        Object bean = singletonBeans.get(className);
+        if (bean == null) {
+            long start = StartupProfiler.start();
+            bean = definition.newInstance(arguments);
 
             initializeBean(bean);
+            profiler.recordInstantiation(className, start);
 
-            putBean(className, bean);
+            Object existing = putBean(className, bean);
+            if (existing != null)
+                bean = existing;
         }
 
-        return getBean(className);
+        return bean;
     }
 
     private void initializeBean(Object bean){
 
     }
 
-    public void loadBeans(String packageName) throws Exception {
+    public void loadBeans(ApplicationSettings settings) throws Exception {
+        this.lazyInitialization = settings.isLazyInitialization();
+        StartupProfiler profiler = new StartupProfiler();
+        this.profiler = profiler;
+
+        // a reloaded context starts over: beans and repositories of the previous load hold its shut down executor
+        singletonBeans.clear();
+        lazyBeans.clear();
+        repositoryImplementations.clear();
+        repositoryGenericTypes.clear();
+        entityRepositories.clear();
+
+        queryExecutor.shutdown();
+        this.queryExecutor = new QueryExecutor(settings.getBatchSize(), settings.getFetchSize(),
+                settings.getMaxInListSize(), settings.getQueryParallelism());
+
+        ForkJoinPool pool = new ForkJoinPool(settings.getParallelism());
+        try {
+            long start = StartupProfiler.start();
+            ClassPathScanner scanner = new ClassPathScanner(settings, pool);
+
+            Path planFile = settings.getWiringPlanFile();
+            String fingerprint = null;
+            WiringPlan plan = null;
+            if (planFile != null) {
+                fingerprint = WiringPlan.fingerprint(settings);
+                plan = WiringPlan.read(planFile, fingerprint);
+            }
+
+            Set<String> classNames = new TreeSet<>();
+            List<String> packagesToScan = settings.getBasePackages();
+            if (plan != null) {
+                classNames.addAll(plan.getClassNames());
+                packagesToScan = Collections.emptyList();
+            } else if (settings.isBeanIndexEnabled()) {
+                BeanIndex index = BeanIndex.load(settings.getClassLoader());
+                if (index != null) {
+                    // packages without index entries come from jars built without the processor
+                    packagesToScan = new ArrayList<>();
+                    for (String packageName : settings.getBasePackages()) {
+                        List<String> indexedClassNames = index.getClassNames(packageName);
+                        if (indexedClassNames.isEmpty())
+                            packagesToScan.add(packageName);
+                        else
+                            classNames.addAll(indexedClassNames);
+                    }
+                }
+            }
+            if (!packagesToScan.isEmpty())
+                classNames.addAll(scanner.scanClassNames(packagesToScan));
+            profiler.recordPhase(StartupReport.Phase.SCAN, start);
+
+            // the plan keeps every candidate, so changed exclude filters apply without a rescan
+            List<String> includedClassNames = new ArrayList<>();
+            for (String className : classNames) {
+                if (!settings.isExcluded(className))
+                    includedClassNames.add(className);
+            }
+
+            start = StartupProfiler.start();
+            List<Class> classes = scanner.loadClasses(includedClassNames);
+            profiler.recordPhase(StartupReport.Phase.CLASS_LOAD, start);
+
+            List<BeanDefinition> definitions = loadBeans(classes, pool, plan);
+            connectDataSource(settings);
+
+            if (planFile != null && plan == null)
+                writeWiringPlan(planFile, fingerprint, classNames, definitions);
+        } finally {
+            pool.shutdown();
+        }
+        profiler.finish();
+    }
+
+    private void connectDataSource(ApplicationSettings settings){
+        DataSource dataSource = registry.getBean(DataSource.class);
+        if (dataSource != null)
+            queryExecutor.setConnectionPool(new ConnectionPool(dataSource, settings));
+    }
+
+    private void writeWiringPlan(Path planFile, String fingerprint, Set<String> classNames, List<BeanDefinition> definitions){
+        try {
+            WiringPlan.Builder builder = new WiringPlan.Builder().addClassNames(classNames);
+            for (Map.Entry<Class, Class> entry : repositoryImplementations.entrySet()) {
+                Class _interface = entry.getKey();
+                builder.addRepository(_interface, entry.getValue(), hasEntityTypes(_interface) ? getRepositoryGenericTypes(_interface) : null);
+            }
+            for (BeanDefinition definition : definitions) {
+                builder.addBean(definition.getBeanClass());
+            }
+
+            builder.build().write(planFile, fingerprint);
+        } catch (Exception e) {
+            // the next start simply resolves the context again
+            System.err.println("Could not write wiring plan " + planFile + ": " + e);
+        }
+    }
+
+    private List<BeanDefinition> loadBeans(List<Class> scannedClasses, ForkJoinPool pool, WiringPlan plan) throws Exception {
         List<Class> classes = new ArrayList<>();
-        for (String className : listClassNames(packageName)) {
-            Class clazz = Class.forName(className);
+        for (Class clazz : scannedClasses) {
             if (clazz.isAnnotation())
                 continue;
 
             classes.add(clazz);
         }
 
+        Map<String, Class> classesByName = new HashMap<>();
+        for (Class clazz : classes) {
+            classesByName.put(clazz.getName(), clazz);
+        }
+
+        List<BeanDefinition> definitions = new ArrayList<>();
         for (Class clazz: classes){
             if (clazz.isInterface()){
-                if (isRepository(clazz)){
-                    Class implClass = findRepositoryImplementationClass(clazz, classes);
+                Class implClass = plan != null ? classesByName.get(plan.getRepositoryImplementation(clazz.getName())) : null;
+                if (implClass != null) {
+                    repositoryImplementations.put(clazz, implClass);
+
+                    Class[] genericTypes = plan.getRepositoryGenericTypes(clazz);
+                    if (genericTypes != null)
+                        repositoryGenericTypes.put(clazz, genericTypes);
+                } else if (isRepository(clazz)){
+                    implClass = findRepositoryImplementationClass(clazz, classes);
                     if (implClass == null){
                         throw new IllegalStateException("Implementation of @Repository '" + clazz.getName() + "' could not be found. Check your configuration.");
                     }
 
                     repositoryImplementations.put(clazz, implClass);
-                } else {
-                    Object impl = getInterfaceImplementation(clazz);
-                    if (impl != null){
-                        putBean(clazz, impl);
-                    }
                 }
             } else {
-                if (clazz.isAnnotationPresent(Component.class)){
-                    loadBean(clazz);
+                if ((plan != null && plan.restoreInjectionPlan(clazz)) || clazz.isAnnotationPresent(Component.class)){
+                    definitions.add(BeanDefinition.of(clazz));
                 }
             }
         }
 
-        wireBeans();
+        loadRepositories(pool);
+
+        long start = StartupProfiler.start();
+        instantiateBeans(definitions, pool);
+        profiler.recordPhase(StartupReport.Phase.INSTANTIATION, start);
+
+        Map<String, Object> beans = new HashMap<>(singletonBeans);
+        beans.putAll(lazyBeans);
+        BeanRegistry registry = new BeanRegistry(beans);
+        this.contextRegistry = registry;
+
+        start = StartupProfiler.start();
+        wireBeans(registry, pool);
+        profiler.recordPhase(StartupReport.Phase.WIRING, start);
+
+        // published only once the beans are fully wired
+        this.registry = registry;
+
+        return definitions;
     }
 
+    private DependencyGraph buildDependencyGraph(List<BeanDefinition> definitions) throws Exception {
+        DependencyGraph graph = new DependencyGraph();
+        for (BeanDefinition definition : definitions) {
+            graph.addNode(definition);
+
+            for (Class dependencyType : definition.getDependencyTypes()) {
+                if (repositoryImplementations.containsKey(dependencyType))
+                    continue;
+
+                graph.addEdge(definition, findDefinition(dependencyType, definitions));
+            }
+        }
+
+        return graph;
+    }
+
+    private BeanDefinition findDefinition(Class type, List<BeanDefinition> definitions) throws Exception {
+        BeanDefinition found = null;
+        for (BeanDefinition definition : definitions) {
+            if (!type.isAssignableFrom(definition.getBeanClass()))
+                continue;
+
+            if (found != null)
+                throw new Exception("Error wiring bean: more than one bean found for '" + type.getName() + "' type");
+
+            found = definition;
+        }
+
+        if (found == null)
+            throw new Exception("Error wiring bean: no beans found for '" + type.getName() + "' type");
+
+        return found;
+    }
+
+    // Every bean starts as soon as its constructor dependencies are created, so independent
+    // parts of the graph are instantiated in parallel while the topological order is preserved.
+    private void instantiateBeans(List<BeanDefinition> definitions, ForkJoinPool pool) throws Exception {
+        DependencyGraph graph = buildDependencyGraph(definitions);
+        Set<BeanDefinition> lazyDefinitions = getLazyDefinitions(graph, definitions);
+
+        Map<BeanDefinition, CompletableFuture<Object>> futures = new HashMap<>();
+        for (BeanDefinition definition : graph.topologicalOrder()) {
+            if (lazyDefinitions.contains(definition)) {
+                LazyBean lazyBean = new LazyBean(definition.getBeanClass(), () -> createLazyBean(definition), this::wireLazyBean);
+                lazyBeans.put(definition.getBeanClass().getName(), lazyBean);
+                futures.put(definition, CompletableFuture.completedFuture(lazyBean));
+                continue;
+            }
+
+            List<BeanDefinition> dependencies = graph.getDependencies(definition);
+            CompletableFuture[] dependencyFutures = new CompletableFuture[dependencies.size()];
+            for (int i = 0; i < dependencyFutures.length; i++) {
+                dependencyFutures[i] = futures.get(dependencies.get(i));
+            }
+
+            futures.put(definition, CompletableFuture.allOf(dependencyFutures)
+                    .thenApplyAsync(ignored -> instantiateBean(definition, dependencyFutures), pool));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    // An eager bean that takes a lazy one as a class typed constructor parameter cannot get a proxy,
+    // so that lazy bean and everything it needs through its constructor are created eagerly.
+    private Set<BeanDefinition> getLazyDefinitions(DependencyGraph graph, List<BeanDefinition> definitions){
+        Set<BeanDefinition> lazyDefinitions = new HashSet<>();
+        for (BeanDefinition definition : definitions) {
+            if (lazyInitialization || definition.getBeanClass().isAnnotationPresent(Lazy.class))
+                lazyDefinitions.add(definition);
+        }
+
+        List<BeanDefinition> eagerDefinitions = new ArrayList<>();
+        for (BeanDefinition definition : definitions) {
+            if (!lazyDefinitions.contains(definition))
+                eagerDefinitions.add(definition);
+        }
+
+        while (!eagerDefinitions.isEmpty()) {
+            BeanDefinition definition = eagerDefinitions.remove(eagerDefinitions.size() - 1);
+            for (BeanDefinition dependency : graph.getDependencies(definition)) {
+                if (lazyDefinitions.contains(dependency) && requiresInstance(definition, dependency)) {
+                    lazyDefinitions.remove(dependency);
+                    eagerDefinitions.add(dependency);
+                }
+            }
+        }
+
+        return lazyDefinitions;
+    }
+
+    private static boolean requiresInstance(BeanDefinition definition, BeanDefinition dependency){
+        for (Class dependencyType : definition.getDependencyTypes()) {
+            if (!dependencyType.isInterface() && dependencyType.isAssignableFrom(dependency.getBeanClass()))
+                return true;
+        }
+
+        return false;
+    }
+
+    private Object createLazyBean(BeanDefinition definition) throws Exception {
+        BeanRegistry registry = this.contextRegistry;
+        if (registry == null)
+            throw new IllegalStateException("Lazy bean '" + definition + "' requested before the context was loaded");
+
+        Class[] dependencyTypes = definition.getDependencyTypes();
+        Object[] arguments = new Object[dependencyTypes.length];
+        for (int i = 0; i < dependencyTypes.length; i++) {
+            if (repositoryImplementations.containsKey(dependencyTypes[i])) {
+                arguments[i] = resolveRepository(dependencyTypes[i]);
+            } else {
+                arguments[i] = toInjectable(registry.lookup(dependencyTypes[i]), dependencyTypes[i]);
+            }
+        }
+
+        long start = StartupProfiler.start();
+        Object bean = definition.newInstance(arguments);
+        initializeBean(bean);
+        profiler.recordInstantiation(definition.getBeanClass().getName(), start);
+
+        return bean;
+    }
+
+    // runs once the holder can hand out the constructed bean, so its injection points may lead back to it
+    private void wireLazyBean(Object bean) throws Exception {
+        try {
+            wireBean(bean, contextRegistry);
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    // lazy beans are injected as proxies where the injection point allows it
+    private static Object toInjectable(Object bean, Class type){
+        if (bean instanceof LazyBean) {
+            LazyBean lazyBean = (LazyBean) bean;
+            if (type.isInterface() && !lazyBean.isCreated())
+                return lazyBean.createProxy(type);
+
+            return lazyBean.get();
+        }
+
+        return bean;
+    }
+
+    // dependency futures follow the order of the non repository constructor parameters
+    private Object instantiateBean(BeanDefinition definition, CompletableFuture[] dependencyFutures){
+        try {
+            Class[] dependencyTypes = definition.getDependencyTypes();
+            Object[] arguments = new Object[dependencyTypes.length];
+            int dependencyIndex = 0;
+            for (int i = 0; i < dependencyTypes.length; i++) {
+                if (repositoryImplementations.containsKey(dependencyTypes[i])) {
+                    arguments[i] = resolveRepository(dependencyTypes[i]);
+                } else {
+                    arguments[i] = toInjectable(dependencyFutures[dependencyIndex++].join(), dependencyTypes[i]);
+                }
+            }
+
+            return loadBean(definition, arguments);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static Exception unwrap(CompletionException e){
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception)
+            return (Exception) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+
+        return e;
+    }
+
+    // a class generated for the interface itself wins over the generic implementation of the root interface
     private Class findRepositoryImplementationClass(Class _interface, List<Class> classes) {
         Class rootInterface = getRepositoryAnnotatedInterface(_interface);
         if (rootInterface == null)
             throw new IllegalArgumentException("Parameter " + _interface.getName() + " is not an Repository");
 
+        Class genericImpl = null;
         for (Class impl: classes){
             if (impl.isInterface())
                 continue;
 
-            if (rootInterface.isAssignableFrom(impl)){
+            if (_interface != rootInterface && _interface.isAssignableFrom(impl))
                 return impl;
+
+            if (genericImpl == null && rootInterface.isAssignableFrom(impl) && !implementsRepositorySubInterface(impl, rootInterface)){
+                genericImpl = impl;
             }
         }
 
-        return null;
+        return genericImpl;
+    }
+
+    private boolean implementsRepositorySubInterface(Class impl, Class rootInterface){
+        for (Class type = impl; type != null; type = type.getSuperclass()) {
+            for (Class _interface : type.getInterfaces()) {
+                if (_interface != rootInterface && rootInterface.isAssignableFrom(_interface))
+                    return true;
+            }
+        }
+
+        return false;
     }
 
     private boolean isRepository(Class _interface){
@@ -120,33 +483,27 @@ class BeanFactory {
         return null;
     }
 
-    private Object getInterfaceImplementation(Class _interface){
-        if (!_interface.isInterface())
-            throw new IllegalArgumentException("Parameter " + _interface.getName() + " is not an interface");
-
-        Object bean = getBean(_interface);
-        if (bean != null){
-            return bean;
-        }
-
-        for (Class superclass: _interface.getInterfaces()) {
-            bean = getInterfaceImplementation(superclass);
-            if (bean != null)
-                return bean;
-        }
-
-        return null;
-    }
-
     private Object createRepositoryInstance(Class _interface, Class clazz) throws Exception {
 
-        Object instance = clazz.getDeclaredConstructor().newInstance();
+        Constructor constructor = clazz.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object instance = constructor.newInstance();
 
-        ((EntityMetadata) instance).setGenericTypes(getInterfaceGenericTypes(_interface));
+        long start = StartupProfiler.start();
+        Class[] genericTypes = getRepositoryGenericTypes(_interface);
+        ((EntityMetadata) instance).setGenericTypes(genericTypes);
+        ((EntityMetadata) instance).setQueryExecutor(queryExecutor);
+        entityRepositories.put(genericTypes[1], (EntityMetadata) instance);
+        profiler.recordPhase(StartupReport.Phase.REPOSITORY_METADATA, start);
 
         return instance;
     }
 
+    private Class[] getRepositoryGenericTypes(Class _interface){
+        Class[] genericTypes = repositoryGenericTypes.get(_interface);
+        return genericTypes != null ? genericTypes : getInterfaceGenericTypes(_interface);
+    }
+
     Class[] getInterfaceGenericTypes(Class _interface){
         Type[] interfaces = _interface.getGenericInterfaces();
         if (interfaces.length == 0)
@@ -169,92 +526,161 @@ class BeanFactory {
         return null;
     }
 
-    private Object createRepositoryProxy(Class clazz, Object bean){
-        InvocationHandler handler = (proxy, method, args) -> {
-            //System.out.println("Invoking " + method.getName() + "(" + args.toString() + ")");
-
-            if (method.getName().startsWith("findBy")){
-                return ((EntityMetadata) bean).findByConditions(method.getName(), args);
-            }
+    // one repository per interface, registered under the interface name and shared by every injection point
+    private void loadRepositories(ForkJoinPool pool) throws Exception {
+        try {
+            pool.submit(() -> repositoryImplementations.keySet().parallelStream()
+                    .filter(this::hasEntityTypes)
+                    .forEach(_interface -> {
+                        try {
+                            resolveRepository(_interface);
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }))
+                    .get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CompletionException)
+                throw unwrap((CompletionException) e.getCause());
+            throw e;
+        }
+    }
 
-            return method.invoke(bean, args);
-        };
+    // generic base interfaces such as CrudRepository itself have no entity to build a repository for
+    private boolean hasEntityTypes(Class _interface){
+        Class[] genericTypes = getRepositoryGenericTypes(_interface);
+        if (genericTypes == null)
+            return false;
 
-        Object proxy = Proxy.newProxyInstance(bean.getClass().getClassLoader(), new Class[] {clazz}, handler);
+        for (Class genericType : genericTypes) {
+            if (genericType == null)
+                return false;
+        }
 
-        return proxy;
+        return true;
     }
 
-    private void wireBeans() throws Exception {
-        for (Object object : singletonBeans.values()) {
-            Class clazz = object.getClass();
-//            for (Field field : clazz.getDeclaredFields()) {
-//                if (field.isAnnotationPresent(Autowired.class)) {
-//                    field.set(object, getBean(field.getType()));
-//                }
-//            }
-
-            for (Method method : clazz.getDeclaredMethods()) {
-                if (method.isAnnotationPresent(Autowired.class)) {
-                    if (method.getParameterCount() != 1)
-                        throw new Exception("Method " + method.getName() + " with @Autowired annotation must have exactly one parameter");
-
-                    Class parameterType = method.getParameterTypes()[0];
-                    Object bean;
-                    if (repositoryImplementations.containsKey(parameterType)){
-                        Class implType = repositoryImplementations.get(parameterType);
-                        Object instance = createRepositoryInstance(parameterType, implType);
-                        if (instance == null){
-                            throw new Exception("Error creating instance of " + implType + " type that implements " + parameterType + " interface.");
-                        }
+    private Object resolveRepository(Class _interface) throws Exception {
+        String beanName = _interface.getName();
+        if (lazyInitialization) {
+            LazyBean lazyRepository = lazyBeans.computeIfAbsent(beanName, key -> new LazyBean(_interface, () -> createRepository(_interface)));
+            return lazyRepository.getProxy();
+        }
 
-                        bean = createRepositoryProxy(parameterType, instance);
-                    } else {
-                        bean = getBean(parameterType);
-                    }
+        Object repository = singletonBeans.get(beanName);
+        if (repository == null) {
+            repository = createRepository(_interface);
 
-                    if (bean == null){
-                        throw new Exception("Error wiring bean: no beans found for '" + parameterType.getName() + "' type");
-                    }
-
-                    method.invoke(object, bean);
-                }
-            }
+            Object existing = putBean(beanName, repository);
+            if (existing != null)
+                repository = existing;
         }
+
+        return repository;
     }
 
-    private List<String> listClassNames(String packageName) throws IOException, URISyntaxException {
-        List<String> list = new ArrayList<>();
+    private Object createRepository(Class _interface) throws Exception {
+        long start = StartupProfiler.start();
+        Class implType = repositoryImplementations.get(_interface);
+        Object instance = createRepositoryInstance(_interface, implType);
+        if (instance == null){
+            throw new Exception("Error creating instance of " + implType + " type that implements " + _interface + " interface.");
+        }
+
+        CoalesceGetOne coalesceGetOne = (CoalesceGetOne) _interface.getAnnotation(CoalesceGetOne.class);
+        if (coalesceGetOne != null)
+            ((EntityMetadata) instance).coalesceGetOne(coalesceGetOne.windowMicros(), coalesceGetOne.maxBatchSize());
+        for (Method method : _interface.getMethods()) {
+            CachedQuery cachedQuery = method.getAnnotation(CachedQuery.class);
+            if (cachedQuery != null)
+                ((EntityMetadata) instance).cacheQueryResults(method.getName(), cachedQuery.maxRows(), cachedQuery.expireAfterWrite());
+        }
 
-        String path = packageName.replace('.', '/');
+        // generated implementations are called directly, everything else goes through the findBy proxy
+        Object repository = _interface.isInstance(instance) ? instance : createRepositoryProxy(_interface, instance);
+        profiler.recordInstantiation(_interface.getName(), start);
 
-        ClassLoader classLoader = ClassLoader.getSystemClassLoader();
-        Enumeration<URL> resources = classLoader.getResources(path);
+        return repository;
+    }
+
+    // every findBy and streamBy method is parsed here, so a bad method name fails the start instead of the first call
+    private Object createRepositoryProxy(Class clazz, Object bean) throws Exception {
+        long start = StartupProfiler.start();
+        EntityMetadata entityMetadata = (EntityMetadata) bean;
+        Map<Method, QueryPlan> queryPlans = new HashMap<>();
+        for (Method method : clazz.getMethods()) {
+            if (!SQLQueryBuilder.isQueryMethod(method.getName()) || method.isDefault() || Modifier.isStatic(method.getModifiers()))
+                continue;
 
-        while(resources.hasMoreElements()){
-            URL resource = resources.nextElement();
+            QueryPlan queryPlan = entityMetadata.compileQuery(method.getName());
+            if (queryPlan.getParameterCount() != method.getParameterCount())
+                throw new Exception("Method " + method.getName() + " of " + clazz.getName() + " has " + method.getParameterCount() + " parameters, but its name uses " + queryPlan.getParameterCount());
 
-            File folder = new File(resource.toURI());
-            listClassFilesRecursive(packageName, folder, list);
+            queryPlans.put(method, queryPlan);
         }
 
-        return list;
+        InvocationHandler handler = (proxy, method, args) -> {
+            QueryPlan queryPlan = queryPlans.get(method);
+            if (queryPlan != null){
+                Object[] values = args == null ? new Object[0] : args;
+                if (SQLQueryBuilder.isStreamMethod(method.getName()))
+                    return entityMetadata.streamByQuery(queryPlan, values);
+
+                return entityMetadata.findByQuery(queryPlan, values);
+            }
+
+            return method.invoke(bean, args);
+        };
+
+        Object proxy = Proxy.newProxyInstance(bean.getClass().getClassLoader(), new Class[] {clazz}, handler);
+        profiler.recordPhase(StartupReport.Phase.PROXY_CREATION, start);
+
+        return proxy;
     }
 
-    private void listClassFilesRecursive(String packageName, File folder, List<String> list){
-        for (File file : folder.listFiles()){
-            if (file.isDirectory()){
-                listClassFilesRecursive(packageName+"."+file.getName(), file, list);
-                continue;
+    private void wireBeans(BeanRegistry registry, ForkJoinPool pool) throws Exception {
+        try {
+            Set<String> repositoryNames = new HashSet<>();
+            for (Class _interface : repositoryImplementations.keySet()) {
+                repositoryNames.add(_interface.getName());
             }
 
-            String filename = file.getName();
-            if (!filename.endsWith(".class"))
-                continue;
+            // repositories are proxies and have nothing to be wired
+            pool.submit(() -> registry.getBeans().entrySet().parallelStream()
+                    .filter(entry -> !repositoryNames.contains(entry.getKey()))
+                    .map(Map.Entry::getValue)
+                    .filter(object -> !(object instanceof LazyBean))
+                    .forEach(object -> wireBean(object, registry)))
+                    .get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CompletionException)
+                throw unwrap((CompletionException) e.getCause());
+            throw e;
+        }
+    }
+
+    private void wireBean(Object object, BeanRegistry registry){
+        long start = StartupProfiler.start();
+        try {
+            for (InjectionPlan.InjectionPoint injectionPoint : InjectionPlan.of(object.getClass()).getInjectionPoints()) {
+                Class dependencyType = injectionPoint.getDependencyType();
+                Object bean;
+                if (repositoryImplementations.containsKey(dependencyType)){
+                    bean = resolveRepository(dependencyType);
+                } else {
+                    bean = toInjectable(registry.lookup(dependencyType), dependencyType);
+                }
 
-            String className = filename.substring(0, filename.lastIndexOf(".class"));
-            list.add(packageName + "." + className);
+                if (bean == null){
+                    throw new Exception("Error wiring bean: no beans found for '" + dependencyType.getName() + "' type");
+                }
+
+                injectionPoint.inject(object, bean);
+            }
+        } catch (Exception e) {
+            throw new CompletionException(e);
         }
+        profiler.recordWiring(object.getClass().getName(), start);
     }
 
 }
@@ -0,0 +1,58 @@
+package demo.disample.beans;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+
+// Class names by package, read from the index the annotation processor writes at build time.
+// Each entry lists the kinds of the class, comma separated.
+public final class BeanIndex {
+    public static final String LOCATION = "META-INF/disample.beans";
+
+    public static final String COMPONENT = "component";
+    public static final String REPOSITORY = "repository";
+    public static final String REPOSITORY_IMPLEMENTATION = "repository-implementation";
+    public static final String ENTITY = "entity";
+
+    private final Properties entries;
+
+    private BeanIndex(Properties entries){
+        this.entries = entries;
+    }
+
+    static BeanIndex load(ClassLoader classLoader) throws IOException {
+        Enumeration<URL> resources = classLoader.getResources(LOCATION);
+        if (!resources.hasMoreElements())
+            return null;
+
+        Properties entries = new Properties();
+        while (resources.hasMoreElements()) {
+            URL resource = resources.nextElement();
+            Properties properties = new Properties();
+            try (InputStream stream = resource.openStream()) {
+                properties.load(stream);
+            }
+            entries.putAll(properties);
+        }
+
+        return new BeanIndex(entries);
+    }
+
+    // the bean candidates of the package; entities are reached through their repositories and not loaded here
+    List<String> getClassNames(String packageName){
+        String prefix = packageName + ".";
+        List<String> classNames = new ArrayList<>();
+        for (String className : entries.stringPropertyNames()) {
+            if (className.startsWith(prefix) && !ENTITY.equals(entries.getProperty(className)))
+                classNames.add(className);
+        }
+        Collections.sort(classNames);
+
+        return classNames;
+    }
+}
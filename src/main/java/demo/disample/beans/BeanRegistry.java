@@ -0,0 +1,125 @@
+package demo.disample.beans;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Immutable snapshot of the singletons, indexed by their own class and every super type.
+// Lookups never lock: the index is read through a ClassValue, which caches the result on the Class itself.
+final class BeanRegistry {
+    private final Map<String, Object> beansByName;
+    private final Map<Class, Object> beansByType;
+    private final Map<Class, List<String>> ambiguousTypes;
+
+    private final ClassValue<Object> typeLookup = new ClassValue<Object>() {
+        @Override
+        protected Object computeValue(Class<?> type) {
+            return beansByType.get(type);
+        }
+    };
+
+    BeanRegistry(Map<String, Object> singletonBeans){
+        this.beansByName = Collections.unmodifiableMap(new HashMap<>(singletonBeans));
+
+        Map<Class, Object> beansByType = new HashMap<>();
+        Map<Class, List<String>> ambiguousTypes = new HashMap<>();
+        Set<Class> exactTypes = new HashSet<>();
+
+        for (Object bean : singletonBeans.values()) {
+            beansByType.put(typeOf(bean), bean);
+            exactTypes.add(typeOf(bean));
+        }
+
+        for (Map.Entry<String, Object> entry : singletonBeans.entrySet()) {
+            Object bean = entry.getValue();
+            for (Class superType : getSuperTypes(typeOf(bean))) {
+                if (exactTypes.contains(superType))
+                    continue;
+
+                List<String> candidates = ambiguousTypes.get(superType);
+                if (candidates != null) {
+                    candidates.add(entry.getKey());
+                    continue;
+                }
+
+                Object existing = beansByType.putIfAbsent(superType, bean);
+                if (existing != null && existing != bean) {
+                    beansByType.remove(superType);
+                    candidates = new ArrayList<>();
+                    candidates.add(typeOf(existing).getName());
+                    candidates.add(entry.getKey());
+                    ambiguousTypes.put(superType, candidates);
+                }
+            }
+        }
+
+        this.beansByType = beansByType;
+        this.ambiguousTypes = ambiguousTypes;
+    }
+
+    Object getBean(String beanName){
+        return unwrap(beansByName.get(beanName));
+    }
+
+    <T> T getBean(Class<T> type){
+        return type.cast(unwrap(lookup(type)));
+    }
+
+    // returns lazy beans as their holders, without creating them
+    Object lookup(Class type){
+        Object bean = typeLookup.get(type);
+        if (bean == null && ambiguousTypes.containsKey(type))
+            throw new IllegalStateException("More than one bean found for '" + type.getName() + "' type: " + ambiguousTypes.get(type));
+
+        return bean;
+    }
+
+    Map<String, Object> getBeans(){
+        return beansByName;
+    }
+
+    private static Object unwrap(Object bean){
+        if (bean instanceof LazyBean) {
+            LazyBean lazyBean = (LazyBean) bean;
+            // interface typed holders are repositories, returned as the proxy their injection points share
+            if (lazyBean.getBeanType().isInterface())
+                return lazyBean.getProxy();
+
+            return lazyBean.get();
+        }
+
+        return bean;
+    }
+
+    private static Class typeOf(Object bean){
+        if (bean instanceof LazyBean)
+            return ((LazyBean) bean).getBeanType();
+
+        return bean.getClass();
+    }
+
+    private static Set<Class> getSuperTypes(Class clazz){
+        Set<Class> superTypes = new HashSet<>();
+        Deque<Class> queue = new ArrayDeque<>();
+        queue.add(clazz);
+        while (!queue.isEmpty()) {
+            Class type = queue.poll();
+            Class superclass = type.getSuperclass();
+            if (superclass != null && superclass != Object.class && superTypes.add(superclass))
+                queue.add(superclass);
+
+            for (Class superInterface : type.getInterfaces()) {
+                if (superTypes.add(superInterface))
+                    queue.add(superInterface);
+            }
+        }
+
+        return superTypes;
+    }
+}
@@ -0,0 +1,45 @@
+package demo.disample.beans;
+
+import java.util.Locale;
+
+public final class CacheStatistics {
+    private final long size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    CacheStatistics(long size, long hitCount, long missCount, long evictionCount){
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    // entries dropped for size or age; invalidations by save and delete are not counted
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : hitCount / (double) requests;
+    }
+
+    @Override
+    public String toString(){
+        return String.format(Locale.ROOT, "Cache size %d, hits %d, misses %d (hit rate %.2f), evictions %d",
+                size, hitCount, missCount, getHitRate(), evictionCount);
+    }
+}
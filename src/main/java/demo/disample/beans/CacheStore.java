@@ -0,0 +1,16 @@
+package demo.disample.beans;
+
+// storage of a repository entity cache, on the heap or in direct memory
+interface CacheStore<K, V> {
+
+    V get(K key);
+
+    void put(K key, V value);
+
+    void invalidate(K key);
+
+    void invalidateAll();
+
+    CacheStatistics getStatistics();
+
+}
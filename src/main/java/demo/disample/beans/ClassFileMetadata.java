@@ -0,0 +1,57 @@
+package demo.disample.beans;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+final class ClassFileMetadata {
+    static final int ACC_INTERFACE = 0x0200;
+    static final int ACC_ABSTRACT = 0x0400;
+    static final int ACC_ANNOTATION = 0x2000;
+
+    private final String className;
+    private final String superClassName;
+    private final List<String> interfaceNames;
+    private final Set<String> annotationNames;
+    private final int accessFlags;
+
+    ClassFileMetadata(String className, String superClassName, List<String> interfaceNames, Set<String> annotationNames, int accessFlags){
+        this.className = className;
+        this.superClassName = superClassName;
+        this.interfaceNames = Collections.unmodifiableList(interfaceNames);
+        this.annotationNames = Collections.unmodifiableSet(annotationNames);
+        this.accessFlags = accessFlags;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    public List<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    public Set<String> getAnnotationNames() {
+        return annotationNames;
+    }
+
+    public boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    public boolean isAnnotation() {
+        return (accessFlags & ACC_ANNOTATION) != 0;
+    }
+
+    public boolean isAbstract() {
+        return (accessFlags & ACC_ABSTRACT) != 0;
+    }
+
+    public boolean hasAnnotation(Class annotationClass) {
+        return annotationNames.contains(annotationClass.getName());
+    }
+}
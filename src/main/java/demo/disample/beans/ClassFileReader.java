@@ -0,0 +1,262 @@
+package demo.disample.beans;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Reads only the parts of a class file needed to decide whether it is a bean candidate:
+// access flags, super types and the class level RuntimeVisibleAnnotations attribute.
+final class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAPPING_THRESHOLD = 64 * 1024;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELD_REF = 9;
+    private static final int CONSTANT_METHOD_REF = 10;
+    private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private final ByteBuffer buffer;
+    private int[] constantOffsets;
+
+    private ClassFileReader(ByteBuffer buffer){
+        this.buffer = buffer;
+    }
+
+    static ClassFileMetadata read(Path path) throws IOException {
+        return read(readBuffer(path), path.toString());
+    }
+
+    static ClassFileMetadata read(byte[] bytes, String source) throws IOException {
+        return read(ByteBuffer.wrap(bytes), source);
+    }
+
+    private static ClassFileMetadata read(ByteBuffer buffer, String source) throws IOException {
+        try {
+            return new ClassFileReader(buffer).read();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Malformed class file " + source, e);
+        }
+    }
+
+    private static ByteBuffer readBuffer(Path path) throws IOException {
+        if (path.getFileSystem() != FileSystems.getDefault())
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAPPING_THRESHOLD)
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read until the buffer is full
+            }
+            ((Buffer) buffer).flip();
+            return buffer;
+        }
+    }
+
+    private ClassFileMetadata read() throws IOException {
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("Not a class file");
+
+        // minor and major version
+        skip(4);
+
+        readConstantPool();
+
+        int accessFlags = u2();
+        String className = readClassName(u2());
+        int superClassIndex = u2();
+        String superClassName = superClassIndex == 0 ? null : readClassName(superClassIndex);
+
+        int interfacesCount = u2();
+        List<String> interfaceNames = new ArrayList<>(interfacesCount);
+        for (int i = 0; i < interfacesCount; i++) {
+            interfaceNames.add(readClassName(u2()));
+        }
+
+        skipMembers();
+        skipMembers();
+
+        Set<String> annotationNames = new HashSet<>();
+        int attributesCount = u2();
+        for (int i = 0; i < attributesCount; i++) {
+            String attributeName = readUtf8(u2());
+            int length = buffer.getInt();
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                readAnnotationNames(annotationNames);
+            } else {
+                skip(length);
+            }
+        }
+
+        return new ClassFileMetadata(className, superClassName, interfaceNames, annotationNames, accessFlags);
+    }
+
+    private void readConstantPool() throws IOException {
+        int count = u2();
+        constantOffsets = new int[count];
+        for (int i = 1; i < count; i++) {
+            constantOffsets[i] = buffer.position();
+            int tag = u1();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    skip(u2());
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    skip(2);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    skip(3);
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELD_REF:
+                case CONSTANT_METHOD_REF:
+                case CONSTANT_INTERFACE_METHOD_REF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    skip(4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    skip(8);
+                    // eight byte constants take two slots
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    private void skipMembers(){
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            // access flags, name and descriptor
+            skip(6);
+            int attributesCount = u2();
+            for (int j = 0; j < attributesCount; j++) {
+                skip(2);
+                skip(buffer.getInt());
+            }
+        }
+    }
+
+    private void readAnnotationNames(Set<String> annotationNames) throws IOException {
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            annotationNames.add(descriptorToClassName(readUtf8(u2())));
+            skipElementValuePairs();
+        }
+    }
+
+    private void skipAnnotation(){
+        skip(2);
+        skipElementValuePairs();
+    }
+
+    private void skipElementValuePairs(){
+        int pairsCount = u2();
+        for (int i = 0; i < pairsCount; i++) {
+            skip(2);
+            skipElementValue();
+        }
+    }
+
+    private void skipElementValue(){
+        int tag = u1();
+        switch (tag) {
+            case 'e':
+                skip(4);
+                break;
+            case '@':
+                skipAnnotation();
+                break;
+            case '[':
+                int count = u2();
+                for (int i = 0; i < count; i++) {
+                    skipElementValue();
+                }
+                break;
+            default:
+                // constants and class literals are a single constant pool index
+                skip(2);
+        }
+    }
+
+    private String readClassName(int classIndex) throws IOException {
+        int offset = constantOffsets[classIndex];
+        if ((buffer.get(offset) & 0xFF) != CONSTANT_CLASS)
+            throw new IOException("Constant " + classIndex + " is not a class reference");
+
+        int nameIndex = buffer.getShort(offset + 1) & 0xFFFF;
+        return readUtf8(nameIndex).replace('/', '.');
+    }
+
+    private String readUtf8(int index) throws IOException {
+        int offset = constantOffsets[index];
+        if ((buffer.get(offset) & 0xFF) != CONSTANT_UTF8)
+            throw new IOException("Constant " + index + " is not an UTF8 entry");
+
+        int length = buffer.getShort(offset + 1) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 3 + i);
+        }
+        // class and descriptor names are plain ASCII in practice; modified UTF-8 only differs for \0 and supplementary characters
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String descriptorToClassName(String descriptor){
+        if (descriptor.startsWith("L") && descriptor.endsWith(";"))
+            return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+
+        return descriptor;
+    }
+
+    private int u1(){
+        return buffer.get() & 0xFF;
+    }
+
+    private int u2(){
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    private void skip(int length){
+        // the Buffer cast keeps the class file compatible with Java 8 runtimes
+        ((Buffer) buffer).position(buffer.position() + length);
+    }
+}
@@ -0,0 +1,239 @@
+package demo.disample.beans;
+
+import demo.disample.annotations.Component;
+import demo.disample.annotations.Repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+
+class ClassPathScanner {
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private final ApplicationSettings settings;
+    private final ForkJoinPool pool;
+
+    ClassPathScanner(ApplicationSettings settings, ForkJoinPool pool){
+        this.settings = settings;
+        this.pool = pool;
+    }
+
+    // Reads the class files of the base packages and returns the names of the bean candidates,
+    // so classes that are neither components nor repositories are never loaded.
+    List<String> scanClassNames(List<String> packageNames) throws IOException, URISyntaxException {
+        Map<String, ClassFileMetadata> classes = new ConcurrentHashMap<>();
+        List<FileSystem> openedFileSystems = new ArrayList<>();
+        try {
+            List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+            for (String packageName : packageNames) {
+                Enumeration<URL> resources = settings.getClassLoader().getResources(packageName.replace('.', '/'));
+                while (resources.hasMoreElements()) {
+                    Path root = toPath(resources.nextElement(), openedFileSystems);
+                    tasks.add(pool.submit(new DirectoryScanTask(root, classes)));
+                }
+            }
+
+            for (ForkJoinTask<Void> task : tasks) {
+                task.join();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (FileSystem fileSystem : openedFileSystems) {
+                fileSystem.close();
+            }
+        }
+
+        List<String> list = new ArrayList<>();
+        for (ClassFileMetadata metadata : new ArrayList<>(classes.values())) {
+            if (isCandidate(metadata, classes))
+                list.add(metadata.getClassName());
+        }
+        // keep the bean resolution order independent of the walk order
+        Collections.sort(list);
+
+        return list;
+    }
+
+    private boolean isCandidate(ClassFileMetadata metadata, Map<String, ClassFileMetadata> classes) throws IOException {
+        if (metadata.isAnnotation())
+            return false;
+
+        if (metadata.isInterface())
+            return isRepository(metadata, classes);
+
+        return metadata.hasAnnotation(Component.class) || implementsRepository(metadata, classes);
+    }
+
+    private boolean isRepository(ClassFileMetadata metadata, Map<String, ClassFileMetadata> classes) throws IOException {
+        if (metadata.hasAnnotation(Repository.class))
+            return true;
+
+        for (String interfaceName : metadata.getInterfaceNames()) {
+            ClassFileMetadata superInterface = getMetadata(interfaceName, classes);
+            if (superInterface != null && isRepository(superInterface, classes))
+                return true;
+        }
+
+        return false;
+    }
+
+    private boolean implementsRepository(ClassFileMetadata metadata, Map<String, ClassFileMetadata> classes) throws IOException {
+        for (String interfaceName : metadata.getInterfaceNames()) {
+            ClassFileMetadata superInterface = getMetadata(interfaceName, classes);
+            if (superInterface != null && isRepository(superInterface, classes))
+                return true;
+        }
+
+        if (metadata.getSuperClassName() == null)
+            return false;
+
+        ClassFileMetadata superClass = getMetadata(metadata.getSuperClassName(), classes);
+        return superClass != null && implementsRepository(superClass, classes);
+    }
+
+    // super types outside of the base packages are read from the class loader resources, still without loading them
+    private ClassFileMetadata getMetadata(String className, Map<String, ClassFileMetadata> classes) throws IOException {
+        ClassFileMetadata metadata = classes.get(className);
+        if (metadata != null)
+            return metadata;
+
+        if (className.startsWith("java."))
+            return null;
+
+        try (InputStream stream = settings.getClassLoader().getResourceAsStream(className.replace('.', '/') + CLASS_FILE_SUFFIX)) {
+            if (stream == null)
+                return null;
+
+            metadata = ClassFileReader.read(readAllBytes(stream), className);
+        }
+        classes.put(className, metadata);
+
+        return metadata;
+    }
+
+    private static byte[] readAllBytes(InputStream stream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+
+        return output.toByteArray();
+    }
+
+    List<Class> loadClasses(List<String> classNames) throws Exception {
+        try {
+            return pool.submit(() -> classNames.parallelStream()
+                    .map(this::loadClass)
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalStateException && cause.getCause() instanceof ClassNotFoundException)
+                throw (ClassNotFoundException) cause.getCause();
+            throw e;
+        }
+    }
+
+    private Class loadClass(String className){
+        try {
+            return Class.forName(className, false, settings.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path toPath(URL resource, List<FileSystem> openedFileSystems) throws IOException, URISyntaxException {
+        URI uri = resource.toURI();
+        if ("file".equals(uri.getScheme()))
+            return Paths.get(uri);
+
+        if (!"jar".equals(uri.getScheme()))
+            throw new IOException("Unsupported class path resource '" + resource + "'");
+
+        String spec = uri.toString();
+        int separator = spec.indexOf("!/");
+        URI jarUri = URI.create(spec.substring(0, separator));
+
+        FileSystem fileSystem;
+        try {
+            fileSystem = FileSystems.newFileSystem(jarUri, Collections.emptyMap());
+            openedFileSystems.add(fileSystem);
+        } catch (FileSystemAlreadyExistsException e) {
+            fileSystem = FileSystems.getFileSystem(jarUri);
+        }
+
+        return fileSystem.getPath(spec.substring(separator + 1));
+    }
+
+    private static final class DirectoryScanTask extends RecursiveAction {
+        private final Path directory;
+        private final Map<String, ClassFileMetadata> classes;
+
+        private DirectoryScanTask(Path directory, Map<String, ClassFileMetadata> classes){
+            this.directory = directory;
+            this.classes = classes;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryScanTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    String fileName = getFileName(path);
+                    if (Files.isDirectory(path)) {
+                        subtasks.add(new DirectoryScanTask(path, classes));
+                        continue;
+                    }
+
+                    if (!fileName.endsWith(CLASS_FILE_SUFFIX))
+                        continue;
+
+                    // skips package-info and module-info
+                    if (fileName.indexOf('-') >= 0)
+                        continue;
+
+                    ClassFileMetadata metadata = ClassFileReader.read(path);
+                    classes.put(metadata.getClassName(), metadata);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            invokeAll(subtasks);
+        }
+
+        private static String getFileName(Path path){
+            String fileName = path.getFileName().toString();
+            // directory entries of a jar file system keep their trailing slash
+            if (fileName.endsWith("/"))
+                return fileName.substring(0, fileName.length() - 1);
+
+            return fileName;
+        }
+    }
+}
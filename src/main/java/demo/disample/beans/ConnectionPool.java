@@ -0,0 +1,243 @@
+package demo.disample.beans;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded pool over the DataSource bean. A permit is taken per borrowed connection, so an uncontended
+// borrow or release is a CAS on the semaphore plus a lock-free deque operation; only an exhausted pool parks.
+// Idle connections are reused most recently released first and revalidated when they sat idle too long.
+// Each connection keeps its prepared statements, so a warm connection runs a repository query without a prepare.
+final class ConnectionPool implements AutoCloseable {
+
+    // Only the borrowing thread touches a connection, so its statement cache needs no locking.
+    final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;
+        private volatile long lastUsedNanos;
+        private volatile boolean broken;
+
+        private PooledConnection(Connection connection){
+            this.connection = connection;
+            this.lastUsedNanos = System.nanoTime();
+            // access ordered, the least recently used statement is closed when the cache is full
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= statementCacheSize)
+                        return false;
+
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        Connection getConnection() {
+            return connection;
+        }
+
+        // statements are kept open for the next borrower of the connection; call releaseStatement when done
+        PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement != null) {
+                statementCacheHits.increment();
+                return statement;
+            }
+
+            statementCacheMisses.increment();
+            statement = connection.prepareStatement(sql);
+            if (statementCacheSize > 0)
+                statements.put(sql, statement);
+
+            return statement;
+        }
+
+        void releaseStatement(String sql, PreparedStatement statement){
+            if (statements.get(sql) != statement)
+                closeStatement(statement);
+        }
+
+        // a statement that failed is not reused
+        void evictStatement(String sql, PreparedStatement statement){
+            statements.remove(sql, statement);
+            closeStatement(statement);
+        }
+
+        // the connection is closed instead of going back to the pool
+        void markBroken(){
+            this.broken = true;
+        }
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private static void closeStatement(PreparedStatement statement){
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // the statement is dropped either way
+        }
+    }
+
+    private final DataSource dataSource;
+    private final int maxSize;
+    private final long connectionTimeoutNanos;
+    private final long validationIntervalNanos;
+    private final int statementCacheSize;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    ConnectionPool(DataSource dataSource, int maxSize, long connectionTimeoutMillis, long validationIntervalMillis, int statementCacheSize){
+        if (dataSource == null)
+            throw new NullPointerException("Data source is null");
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Connection pool size must be positive");
+        if (statementCacheSize < 0)
+            throw new IllegalArgumentException("Statement cache size must not be negative");
+
+        this.dataSource = dataSource;
+        this.maxSize = maxSize;
+        this.connectionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMillis);
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(validationIntervalMillis);
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize);
+    }
+
+    ConnectionPool(DataSource dataSource, ApplicationSettings settings){
+        this(dataSource, settings.getConnectionPoolSize(), settings.getConnectionTimeout(), settings.getConnectionValidationInterval(),
+                settings.getStatementCacheSize());
+    }
+
+    PooledConnection borrow() throws SQLException {
+        if (closed)
+            throw new SQLException("Connection pool is closed");
+
+        borrowCount.increment();
+        if (!permits.tryAcquire())
+            awaitPermit();
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idleConnections.pollFirst()) != null) {
+                if (isUsable(pooled))
+                    return pooled;
+
+                discard(pooled);
+            }
+
+            return createConnection();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void awaitPermit() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(connectionTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        waitCount.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (!acquired) {
+            timeoutCount.increment();
+            throw new SQLTimeoutException("No connection available within " + TimeUnit.NANOSECONDS.toMillis(connectionTimeoutNanos) + "ms, all " + maxSize + " connections are in use");
+        }
+    }
+
+    void release(PooledConnection pooled){
+        try {
+            if (closed || pooled.broken || pooled.connection.isClosed()) {
+                discard(pooled);
+            } else {
+                pooled.lastUsedNanos = System.nanoTime();
+                idleConnections.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+
+        // close() may have drained the deque before the connection was offered
+        if (closed)
+            closeIdleConnections();
+    }
+
+    private boolean isUsable(PooledConnection pooled){
+        try {
+            if (System.nanoTime() - pooled.lastUsedNanos < validationIntervalNanos)
+                return !pooled.connection.isClosed();
+
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        if (connection == null)
+            throw new SQLException("Data source returned no connection");
+
+        totalConnections.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    private void discard(PooledConnection pooled){
+        totalConnections.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            // the connection is dropped either way
+        }
+    }
+
+    private void closeIdleConnections(){
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    ConnectionPoolMetrics getMetrics(){
+        return new ConnectionPoolMetrics(maxSize, totalConnections.get(), maxSize - permits.availablePermits(),
+                borrowCount.sum(), waitCount.sum(), timeoutCount.sum(), totalWaitNanos.sum(), maxWaitNanos.get(),
+                statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+
+    @Override
+    public void close(){
+        closed = true;
+        closeIdleConnections();
+    }
+}
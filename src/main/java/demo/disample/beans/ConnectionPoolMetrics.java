@@ -0,0 +1,88 @@
+package demo.disample.beans;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Snapshot of the connection pool counters; waits are only counted for borrows that found the pool exhausted.
+public final class ConnectionPoolMetrics {
+    private final int maxSize;
+    private final int totalConnections;
+    private final int activeConnections;
+    private final long borrowCount;
+    private final long waitCount;
+    private final long timeoutCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    ConnectionPoolMetrics(int maxSize, int totalConnections, int activeConnections, long borrowCount,
+                          long waitCount, long timeoutCount, long totalWaitNanos, long maxWaitNanos,
+                          long statementCacheHits, long statementCacheMisses){
+        this.maxSize = maxSize;
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.borrowCount = borrowCount;
+        this.waitCount = waitCount;
+        this.timeoutCount = timeoutCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getWaitCount() {
+        return waitCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public long getAverageWaitNanos() {
+        return waitCount == 0 ? 0 : totalWaitNanos / waitCount;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    @Override
+    public String toString(){
+        return "Connections " + activeConnections + "/" + totalConnections + " of " + maxSize + ", borrows " + borrowCount
+                + ", waits " + waitCount + " (average " + toMillis(getAverageWaitNanos()) + "ms, max " + toMillis(maxWaitNanos)
+                + "ms), timeouts " + timeoutCount + ", statement cache hits " + statementCacheHits + "/" + (statementCacheHits + statementCacheMisses);
+    }
+
+    private static String toMillis(long nanos){
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -2,17 +2,29 @@ package demo.disample.beans;
 
 import demo.disample.annotations.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CrudRepository<ID, ENTITY> {
 
     ENTITY save(ENTITY obj) throws Exception;
 
+    List<ENTITY> saveAll(Iterable<ENTITY> objects) throws Exception;
+
     ENTITY getOne(ID id);
 
+    // ids the table doesn't have are left out, the order of the result is not the order of the ids
+    List<ENTITY> findAllById(Collection<ID> ids);
+
     void delete(ID id);
 
+    void deleteAllById(Iterable<ID> ids);
+
     List<ENTITY> listAll();
 
+    // rows are read from an open cursor while the stream is consumed; close the stream to release the connection
+    Stream<ENTITY> streamAll();
+
 }
@@ -1,29 +1,52 @@
 package demo.disample.beans;
 
+import demo.disample.annotations.Cacheable;
 import demo.disample.annotations.Column;
 import demo.disample.annotations.Component;
 import demo.disample.annotations.Id;
 import demo.disample.annotations.Table;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 @Component
 public class CrudRepositoryImpl<ID, ENTITY> implements CrudRepository<ID, ENTITY>, EntityMetadata<ENTITY> {
 
     private final AtomicReference<Metadata> metadataReference;
+    private volatile QueryExecutor queryExecutor = new QueryExecutor();
+    // null unless the repository is @CoalesceGetOne
+    private volatile GetOneBatcher getOneBatcher;
+    // result caches of the @CachedQuery methods by their SQL
+    private final Map<String, QueryResultCache> queryCaches = new ConcurrentHashMap<>();
 
     public CrudRepositoryImpl(){
         this.metadataReference = new AtomicReference<>();
     }
 
+    @Override
+    public void setQueryExecutor(QueryExecutor queryExecutor) {
+        if (queryExecutor == null)
+            throw new NullPointerException("Query executor is null");
+
+        this.queryExecutor = queryExecutor;
+    }
+
     @Override
     public void setGenericTypes(Class[] genericTypes) throws Exception {
         if (genericTypes == null)
@@ -47,8 +70,27 @@ public class CrudRepositoryImpl<ID, ENTITY> implements CrudRepository<ID, ENTITY
         private final String idFieldName;
         private final Map<String, String> fieldsToColumns;
         private final Map<String, String> columnsToFields;
-
-        private Metadata(Builder builder){
+        // column order of the saved statements; the accessors read the entity values in the same order
+        private final String[] columnNames;
+        private final MethodHandle[] accessors;
+        private final MethodHandle[] mutators;
+        private final int idIndex;
+        // built once, with the column order above
+        private final String insertSql;
+        private final String updateByIdSql;
+        private final String deleteByIdSql;
+        private final String selectByIdSql;
+        private final String selectAllSql;
+        // "ID IN (?)", expanded for the ids of each findAllById call
+        private final String selectInIdsSql;
+        // by the number of ids
+        private final Map<Integer, String> selectByIdsSql = new ConcurrentHashMap<>();
+        private final EntityMapper mapper;
+        private final SQLQueryBuilder queryBuilder;
+        // column values of the entities read by getOne, null unless the entity is @Cacheable
+        private final CacheStore<Object, Object[]> cache;
+
+        private Metadata(Builder builder) throws Exception {
             this.idClass = builder.idClass;
             this.entityClass = builder.entityClass;
             this.tableName = builder.tableName;
@@ -56,6 +98,39 @@ public class CrudRepositoryImpl<ID, ENTITY> implements CrudRepository<ID, ENTITY
 
             this.fieldsToColumns = builder.fieldsToColumns;
             this.columnsToFields = builder.columnsToFields;
+            this.columnNames = builder.columnNames.toArray(new String[0]);
+            this.accessors = builder.accessors.toArray(new MethodHandle[0]);
+            this.mutators = builder.mutators.toArray(new MethodHandle[0]);
+            this.idIndex = builder.idIndex;
+
+            List<String> columns = Arrays.asList(columnNames);
+            String idFilter = SQLQueryBuilder.buildIdFilter(columnNames[idIndex]);
+            this.insertSql = SQLQueryBuilder.buildInsertQuery(tableName, columns);
+            this.updateByIdSql = SQLQueryBuilder.buildUpdateQuery(tableName, columns) + idFilter;
+            this.deleteByIdSql = SQLQueryBuilder.buildDeleteQuery(tableName) + idFilter;
+            this.selectAllSql = SQLQueryBuilder.buildSelectQuery(tableName);
+            this.selectByIdSql = selectAllSql + idFilter;
+            this.selectInIdsSql = selectAllSql + SQLQueryBuilder.buildInFilter(columnNames[idIndex], 1);
+
+            this.mapper = new EntityMapper(entityClass, columnsToFields);
+            this.queryBuilder = new SQLQueryBuilder(fieldsToColumns);
+
+            this.cache = createCache(builder.columnTypes.toArray(new Class[0]));
+        }
+
+        private CacheStore<Object, Object[]> createCache(Class[] columnTypes) throws Exception {
+            Cacheable cacheable = (Cacheable) entityClass.getAnnotation(Cacheable.class);
+            if (cacheable == null)
+                return null;
+            if (cacheable.offHeapBytes() == 0)
+                return new EntityCache<>(cacheable.maxSize(), cacheable.expireAfterWrite());
+
+            // the off heap index keys are primitive longs
+            if (idClass != Integer.class && idClass != Long.class)
+                throw new Exception("Entity type " + entityClass.getName() + " must have an int or long id to be cached off heap");
+
+            return new OffHeapEntityCache(new EntityCodec(entityClass, columnTypes), cacheable.offHeapBytes(),
+                    cacheable.maxSize(), cacheable.expireAfterWrite());
         }
 
         private static class Builder{
@@ -65,6 +140,11 @@ public class CrudRepositoryImpl<ID, ENTITY> implements CrudRepository<ID, ENTITY
             private String idFieldName;
             private final Map<String, String> fieldsToColumns = new ConcurrentHashMap<>();
             private final Map<String, String> columnsToFields = new ConcurrentHashMap<>();
+            private final List<String> columnNames = new ArrayList<>();
+            private final List<MethodHandle> accessors = new ArrayList<>();
+            private final List<MethodHandle> mutators = new ArrayList<>();
+            private final List<Class> columnTypes = new ArrayList<>();
+            private int idIndex;
 
             public Builder setIdClass(Class idClass){
                 this.idClass = idClass;
@@ -95,8 +175,14 @@ public class CrudRepositoryImpl<ID, ENTITY> implements CrudRepository<ID, ENTITY
 
                         if (field.isAnnotationPresent(Id.class)){
                             this.idFieldName = field.getName();
+                            this.idIndex = columnNames.size();
                             idsCount++;
                         }
+
+                        columnNames.add(columnName);
+                        accessors.add(resolveAccessor(field));
+                        mutators.add(resolveMutator(field));
+                        columnTypes.add(field.getType());
                     }
                 }
 
@@ -107,6 +193,26 @@ public class CrudRepositoryImpl<ID, ENTITY> implements CrudRepository<ID, ENTITY
                 }
             }
 
+            // the get method when the entity has one, the field otherwise
+            private MethodHandle resolveAccessor(Field field) throws IllegalAccessException {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle accessor;
+                try {
+                    Method method = this.entityClass.getMethod("get" + Utils.capitalizeWord(field.getName()));
+                    accessor = lookup.unreflect(method);
+                } catch (NoSuchMethodException e) {
+                    field.setAccessible(true);
+                    accessor = lookup.unreflectGetter(field);
+                }
+
+                return accessor.asType(MethodType.methodType(Object.class, Object.class));
+            }
+
+            private MethodHandle resolveMutator(Field field) throws IllegalAccessException {
+                field.setAccessible(true);
+                return MethodHandles.lookup().unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            }
+
             public Metadata build() throws Exception {
                 resolveTableName();
                 resolveFields();
@@ -146,105 +252,660 @@ public class CrudRepositoryImpl<ID, ENTITY> implements CrudRepository<ID, ENTITY
         public Map<String, String> getColumnsToFields() {
             return columnsToFields;
         }
-    }
 
-    private Metadata getMetadata() {
-        return metadataReference.get();
-    }
+        String[] getColumnNames() {
+            return columnNames;
+        }
+
+        int getIdIndex() {
+            return idIndex;
+        }
+
+        String getInsertSql() {
+            return insertSql;
+        }
+
+        String getUpdateByIdSql() {
+            return updateByIdSql;
+        }
+
+        String getDeleteByIdSql() {
+            return deleteByIdSql;
+        }
 
-    private Map<String, Object> getEntityFieldValues(ENTITY obj) throws Exception {
-        Map<String, Object> fields = new HashMap<>();
+        String getSelectByIdSql() {
+            return selectByIdSql;
+        }
 
-        for (Map.Entry entry: getMetadata().getFieldsToColumns().entrySet()){
-            String fieldName = (String) entry.getKey();
-            Method method;
+        String getSelectAllSql() {
+            return selectAllSql;
+        }
+
+        String getSelectInIdsSql() {
+            return selectInIdsSql;
+        }
+
+        Object readId(Object entity) {
             try {
-                method = getMetadata().getEntityClass().getMethod("get" + Utils.capitalizeWord(fieldName));
-            } catch (NoSuchMethodException e) {
-                throw new Exception("Error getting field value of " + getMetadata().getEntityClass().getName() + ". Get method of field '" + fieldName + "' not found.");
+                return accessors[idIndex].invokeExact(entity);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Error getting id of " + entityClass.getName(), t);
             }
+        }
+
+        String getSelectByIdsSql(int count) {
+            return selectByIdsSql.computeIfAbsent(count,
+                    size -> selectAllSql + SQLQueryBuilder.buildInFilter(columnNames[idIndex], size));
+        }
 
-            Object value = method.invoke(obj);
+        void readValues(Object entity, Object[] values) throws Exception {
+            try {
+                for (int i = 0; i < accessors.length; i++) {
+                    values[i] = accessors[i].invokeExact(entity);
+                }
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new Exception("Error getting field values of " + entityClass.getName(), t);
+            }
+        }
 
-            fields.put(fieldName, value);
+        // copies the column values, so a cached entity is never shared with a caller that may change it
+        Object[] disassemble(Object entity) throws Exception {
+            Object[] values = new Object[accessors.length];
+            readValues(entity, values);
+            return values;
         }
 
-        return fields;
-    }
+        Object assemble(Object[] values) throws Exception {
+            Object entity = mapper.newInstance();
+            try {
+                for (int i = 0; i < mutators.length; i++) {
+                    mutators[i].invokeExact(entity, values[i]);
+                }
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new Exception("Error setting field values of " + entityClass.getName(), t);
+            }
 
-    private Map<String, String> getColumnsAndValues(Map<String, Object> fieldValues){
-        Map<String, String> columnsAndValues = new HashMap<>();
-        for (Map.Entry entry: fieldValues.entrySet()){
-            columnsAndValues.put(getMetadata().getColumnName(entry.getKey().toString()), entry.getValue().toString());
+            return entity;
         }
 
-        return columnsAndValues;
-    }
+        CacheStore<Object, Object[]> getCache() {
+            return cache;
+        }
 
-    private String getQueryFilterById(ID id){
-        if (id == null){
-            throw new NullPointerException("Id value must not be null");
+        EntityMapper getMapper() {
+            return mapper;
         }
 
-        return getQueryFilterById(id.toString());
+        public SQLQueryBuilder getQueryBuilder() {
+            return queryBuilder;
+        }
+    }
+
+    private Metadata getMetadata() {
+        return metadataReference.get();
     }
 
-    private String getQueryFilterById(String id){
+    private static void checkId(Object id){
         if (id == null){
             throw new NullPointerException("Id value must not be null");
         }
-
-        return String.format(" WHERE %s = '%s'", getMetadata().getIdColumnName(), id);
     }
 
     @Override
     public ENTITY save(ENTITY obj) throws Exception {
         //System.out.println("Saving object {" + obj.toString() + "}");
 
-        Map<String, String> values = getColumnsAndValues(getEntityFieldValues(obj));
-        String id = values.get(getMetadata().getIdColumnName());
+        Metadata metadata = getMetadata();
+        int columnCount = metadata.getColumnNames().length;
+        Object[] values = readSaveValues(obj);
 
-        String query;
-        if ((id == null) || (id.isEmpty()))
-            query = SQLQueryBuilder.buildInsertQuery(getMetadata().getTableName(), values);
-        else
-            query = SQLQueryBuilder.buildUpdateQuery(getMetadata().getTableName(), values) + getQueryFilterById(id);
+        if (isNew(values)) {
+            execute(metadata.getInsertSql(), values, columnCount);
+            written(Collections.emptyList());
+            return obj;
+        }
 
-        System.out.println(query);
+        // A primitive id is never empty, so an entity the table doesn't have yet is inserted. Both statements run
+        // in one transaction; two saves of the same missing id may still both insert, the primary key of the table
+        // is what makes the second one fail instead of adding a duplicate row.
+        if (queryExecutor.isConnected()) {
+            queryExecutor.executeInTransaction(connection -> {
+                if (QueryExecutor.executeUpdate(connection, metadata.getUpdateByIdSql(), values, values.length) == 0)
+                    QueryExecutor.executeUpdate(connection, metadata.getInsertSql(), values, columnCount);
+                return null;
+            });
+        } else {
+            execute(metadata.getUpdateByIdSql(), values, values.length);
+        }
+        written(Collections.singletonList(values[columnCount]));
 
         return obj;
     }
 
+    // one array for both statements: the column values, then the id of the update filter
+    private Object[] readSaveValues(ENTITY obj) throws Exception {
+        Metadata metadata = getMetadata();
+        String[] columns = metadata.getColumnNames();
+        Object[] values = new Object[columns.length + 1];
+        metadata.readValues(obj, values);
+        values[columns.length] = values[metadata.getIdIndex()];
+
+        return values;
+    }
+
+    private boolean isNew(Object[] values){
+        Object id = values[getMetadata().getIdIndex()];
+        return (id == null) || "".equals(id);
+    }
+
+    // Inserts and updates are collected separately and sent as JDBC batches of the configured size,
+    // each batch in its own transaction. Updated rows the table doesn't have go into the insert batch.
+    @Override
+    public List<ENTITY> saveAll(Iterable<ENTITY> objects) throws Exception {
+        if (objects == null)
+            throw new NullPointerException("Entities is null");
+
+        List<ENTITY> saved = new ArrayList<>();
+        if (!queryExecutor.isConnected()) {
+            for (ENTITY obj : objects) {
+                saved.add(save(obj));
+            }
+            return saved;
+        }
+
+        int batchSize = queryExecutor.getBatchSize();
+        List<Object[]> inserts = new ArrayList<>(batchSize);
+        List<Object[]> updates = new ArrayList<>(batchSize);
+        for (ENTITY obj : objects) {
+            Object[] values = readSaveValues(obj);
+            if (isNew(values))
+                inserts.add(values);
+            else
+                updates.add(values);
+            saved.add(obj);
+
+            if (inserts.size() == batchSize || updates.size() == batchSize)
+                flushSaves(inserts, updates);
+        }
+        if (!inserts.isEmpty() || !updates.isEmpty())
+            flushSaves(inserts, updates);
+
+        return saved;
+    }
+
+    private void flushSaves(List<Object[]> inserts, List<Object[]> updates){
+        Metadata metadata = getMetadata();
+        int columnCount = metadata.getColumnNames().length;
+        queryExecutor.executeInTransaction(connection -> {
+            if (!updates.isEmpty()) {
+                int[] counts = QueryExecutor.executeBatch(connection, metadata.getUpdateByIdSql(), updates, columnCount + 1);
+                // drivers may answer SUCCESS_NO_INFO, only an explicit 0 means the row is missing
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0)
+                        inserts.add(updates.get(i));
+                }
+            }
+            // updates of missing rows join the pending inserts, a batch still holds at most batchSize rows
+            int batchSize = queryExecutor.getBatchSize();
+            for (int from = 0; from < inserts.size(); from += batchSize) {
+                QueryExecutor.executeBatch(connection, metadata.getInsertSql(),
+                        inserts.subList(from, Math.min(inserts.size(), from + batchSize)), columnCount);
+            }
+
+            return null;
+        });
+
+        List<Object> ids = new ArrayList<>(updates.size());
+        for (Object[] values : updates) {
+            ids.add(values[columnCount]);
+        }
+        written(ids);
+        inserts.clear();
+        updates.clear();
+    }
+
     @Override
     public ENTITY getOne(ID id){
-        System.out.println("SELECT * FROM " + getMetadata().getTableName() + getQueryFilterById(id));
+        checkId(id);
+        Metadata metadata = getMetadata();
+        String query = metadata.getSelectByIdSql();
+        if (queryExecutor.isConnected()) {
+            CacheStore<Object, Object[]> cache = metadata.getCache();
+            try {
+                if (cache != null) {
+                    Object[] values = cache.get(id);
+                    if (values != null)
+                        return (ENTITY) metadata.assemble(values);
+                }
+
+                long tableVersion = queryExecutor.getTableVersion(metadata.getTableName());
+                GetOneBatcher batcher = this.getOneBatcher;
+                if (batcher != null) {
+                    Object[] values = batcher.load(id);
+                    if (values == null)
+                        return null;
+
+                    if (cache != null)
+                        cacheLoaded(cache, tableVersion, id, values);
+                    return (ENTITY) metadata.assemble(values);
+                }
+
+                List<ENTITY> result = queryExecutor.executeQuery(query, new Object[] {id}, metadata.getMapper());
+                if (result.isEmpty())
+                    return null;
+
+                ENTITY entity = result.get(0);
+                if (cache != null)
+                    cacheLoaded(cache, tableVersion, id, metadata.disassemble(entity));
+                return entity;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Error copying cached " + metadata.getEntityClass().getName(), e);
+            }
+        }
+
+        printQuery(query, new Object[] {id});
 
         try {
-            return (ENTITY) getMetadata().getEntityClass().newInstance();
+            return (ENTITY) metadata.getEntityClass().newInstance();
         } catch (InstantiationException | IllegalAccessException e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    // Write-through, called once the rows are written, in this order: pending batched reads of the ids are
+    // dropped, so no later getOne joins a read older than the write; the table version moves on, so a read
+    // racing with the write doesn't keep its row (see cacheLoaded); then the cached copies are dropped.
+    private void written(List<Object> ids){
+        GetOneBatcher batcher = this.getOneBatcher;
+        if (batcher != null) {
+            for (Object id : ids) {
+                batcher.invalidate(id);
+            }
+        }
+
+        queryExecutor.incrementTableVersion(getMetadata().getTableName());
+
+        CacheStore<Object, Object[]> cache = getMetadata().getCache();
+        if (cache != null) {
+            for (Object id : ids) {
+                cache.invalidate(id);
+            }
+        }
+    }
+
+    // The table version is read before the row. A write that moved it on meanwhile may have invalidated the id
+    // before this put, so the row is dropped again; a write that moves it on later invalidates the id after it.
+    private void cacheLoaded(CacheStore<Object, Object[]> cache, long tableVersion, Object id, Object[] values){
+        cache.put(id, values);
+        if (queryExecutor.getTableVersion(getMetadata().getTableName()) != tableVersion)
+            cache.invalidate(id);
+    }
+
+    @Override
+    public void coalesceGetOne(long windowMicros, int maxBatchSize) {
+        this.getOneBatcher = new GetOneBatcher(this::loadByIds, windowMicros, maxBatchSize);
+    }
+
+    // the IN list is padded like the In conditions, see paddedSize
+    private Map<Object, Object[]> loadByIds(List<Object> ids){
+        Metadata metadata = getMetadata();
+        int count = paddedSize(ids.size(), getOneBatcher.getMaxBatchSize());
+        Object[] parameters = ids.toArray(new Object[count]);
+        Arrays.fill(parameters, ids.size(), count, ids.get(ids.size() - 1));
+
+        List<ENTITY> entities = queryExecutor.executeQuery(metadata.getSelectByIdsSql(count), parameters, metadata.getMapper());
+        Map<Object, Object[]> rows = new HashMap<>();
+        try {
+            for (ENTITY entity : entities) {
+                Object[] values = metadata.disassemble(entity);
+                rows.put(values[metadata.getIdIndex()], values);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Error reading ids of " + metadata.getEntityClass().getName(), e);
+        }
+
+        return rows;
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        CacheStore<Object, Object[]> cache = getMetadata().getCache();
+        return cache != null ? cache.getStatistics() : null;
+    }
+
     @Override
     public void delete(ID id) {
-        System.out.println("DELETE FROM " + getMetadata().getTableName() + getQueryFilterById(id));
+        checkId(id);
+        execute(getMetadata().getDeleteByIdSql(), new Object[] {id}, 1);
+        written(Collections.singletonList(id));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<ID> ids) {
+        if (ids == null)
+            throw new NullPointerException("Ids is null");
+
+        if (!queryExecutor.isConnected()) {
+            for (ID id : ids) {
+                delete(id);
+            }
+            return;
+        }
+
+        int batchSize = queryExecutor.getBatchSize();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (ID id : ids) {
+            checkId(id);
+            batch.add(new Object[] {id});
+
+            if (batch.size() == batchSize)
+                flushDeletes(batch);
+        }
+        if (!batch.isEmpty())
+            flushDeletes(batch);
+    }
+
+    private void flushDeletes(List<Object[]> batch){
+        String sql = getMetadata().getDeleteByIdSql();
+        queryExecutor.executeInTransaction(connection -> QueryExecutor.executeBatch(connection, sql, batch, 1));
+        List<Object> ids = new ArrayList<>(batch.size());
+        for (Object[] id : batch) {
+            ids.add(id[0]);
+        }
+        written(ids);
+        batch.clear();
     }
 
     @Override
     public List<ENTITY> listAll() {
-        System.out.println("SELECT * FROM " + getMetadata().getTableName());
-        return new ArrayList<>();
+        return findByQuery(getMetadata().getSelectAllSql(), new Object[0]);
+    }
+
+    // without a DataSource bean the statements are only printed, -1 tells that nothing was executed
+    private int execute(String query, Object[] parameters, int parameterCount){
+        if (!queryExecutor.isConnected()) {
+            printQuery(query, Arrays.copyOf(parameters, parameterCount));
+            return -1;
+        }
+
+        return queryExecutor.executeUpdate(query, parameters, parameterCount);
+    }
+
+    private static void printQuery(String query, Object[] parameters){
+        System.out.println(parameters.length == 0 ? query : query + " " + Arrays.toString(parameters));
+    }
+
+    @Override
+    public Stream<ENTITY> streamAll() {
+        return streamByQuery(getMetadata().getSelectAllSql(), new Object[0]);
+    }
+
+    // called by the generated streamBy methods with a query parsed at build time
+    protected Stream<ENTITY> streamByQuery(String query, Object[] parameters){
+        if (!queryExecutor.isConnected()) {
+            printQuery(query, parameters);
+            return Stream.empty();
+        }
+
+        for (Object parameter : parameters) {
+            if (parameter instanceof Collection) {
+                Statement statement = bindInLists(query, parameters, -1, null, 0);
+                if (statement.parameters.length > queryExecutor.getMaxInListSize())
+                    throw new IllegalArgumentException("'" + query + "' binds " + statement.parameters.length
+                            + " values, a streamed query can bind at most " + queryExecutor.getMaxInListSize());
+
+                return queryExecutor.stream(statement.sql, statement.parameters, getMetadata().getMapper());
+            }
+        }
+
+        return queryExecutor.stream(query, parameters, getMetadata().getMapper());
+    }
+
+    private static final class Statement {
+        private final String sql;
+        private final Object[] parameters;
+
+        private Statement(String sql, Object[] parameters){
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    // Collection parameters are bound value by value. When the values exceed the IN list limit of the driver,
+    // the largest collection is split into chunks read concurrently, and rows found by several chunks are kept once.
+    // Only an IN list that isn't negated is split: the rows of NOT IN are the intersection of the chunks, not the union.
+    private List<ENTITY> executeQuery(String query, Object[] parameters){
+        boolean collections = false;
+        int largest = -1;
+        int largestSize = -1;
+        for (int i = 0; i < parameters.length; i++) {
+            if (!(parameters[i] instanceof Collection))
+                continue;
+
+            collections = true;
+            int size = ((Collection) parameters[i]).size();
+            if (size > largestSize && !SQLQueryBuilder.isNegatedInList(query, i)) {
+                largest = i;
+                largestSize = size;
+            }
+        }
+        if (!collections)
+            return queryExecutor.executeQuery(query, parameters, getMetadata().getMapper());
+
+        int maxInListSize = queryExecutor.getMaxInListSize();
+        Statement statement = bindInLists(query, parameters, -1, null, 0);
+        if (statement.parameters.length <= maxInListSize)
+            return queryExecutor.executeQuery(statement.sql, statement.parameters, getMetadata().getMapper());
+        if (largest < 0)
+            throw new IllegalArgumentException("'" + query + "' binds " + statement.parameters.length
+                    + " values, only an IN list that isn't negated is read in chunks of " + maxInListSize);
+
+        // the values bound besides the largest collection, every chunk binds them too
+        int otherCount = statement.parameters.length - paddedSize(largestSize, maxInListSize);
+        int chunkSize = maxInListSize - otherCount;
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("'" + query + "' binds more than " + maxInListSize + " values besides the IN list read in chunks");
+
+        List<Object> values = new ArrayList<>((Collection<?>) parameters[largest]);
+        List<String> sqls = new ArrayList<>();
+        List<Object[]> chunkParameters = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += chunkSize) {
+            Statement chunk = bindInLists(query, parameters, largest, values.subList(from, Math.min(from + chunkSize, values.size())), chunkSize);
+            sqls.add(chunk.sql);
+            chunkParameters.add(chunk.parameters);
+        }
+
+        Metadata metadata = getMetadata();
+        Map<Object, ENTITY> entities = new LinkedHashMap<>();
+        List<List<ENTITY>> chunks = queryExecutor.executeQueries(sqls, chunkParameters, metadata.getMapper());
+        for (List<ENTITY> chunk : chunks) {
+            for (ENTITY entity : chunk) {
+                entities.putIfAbsent(metadata.readId(entity), entity);
+            }
+        }
+
+        return new ArrayList<>(entities.values());
+    }
+
+    // the chunk replaces the collection at chunkIndex and is padded up to chunkSize at most, so the values
+    // bound besides it still fit; -1 binds every collection whole
+    private Statement bindInLists(String query, Object[] parameters, int chunkIndex, List<Object> chunk, int chunkSize){
+        int maxInListSize = queryExecutor.getMaxInListSize();
+        int[] sizes = new int[parameters.length];
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < parameters.length; i++) {
+            Object parameter = i == chunkIndex ? chunk : parameters[i];
+            if (!(parameter instanceof Collection)) {
+                sizes[i] = -1;
+                values.add(parameter);
+                continue;
+            }
+
+            Collection<?> collection = (Collection<?>) parameter;
+            sizes[i] = paddedSize(collection.size(), i == chunkIndex ? chunkSize : maxInListSize);
+            Object last = null;
+            for (Object value : collection) {
+                values.add(value);
+                last = value;
+            }
+            for (int k = collection.size(); k < sizes[i]; k++) {
+                values.add(last);
+            }
+        }
+
+        return new Statement(SQLQueryBuilder.expandInLists(query, sizes), values.toArray());
+    }
+
+    // IN lists are padded to a power of two with their last value, so lists of any length use a few
+    // statements that stay in the statement cache
+    private static int paddedSize(int size, int maxSize){
+        if (size == 0)
+            return 0;
+
+        return Math.max(size, Math.min(Integer.highestOneBit(size * 2 - 1), maxSize));
+    }
+
+    @Override
+    public List<ENTITY> findAllById(Collection<ID> ids) {
+        if (ids == null)
+            throw new NullPointerException("Ids is null");
+
+        Metadata metadata = getMetadata();
+        if (!queryExecutor.isConnected()) {
+            printQuery(metadata.getSelectInIdsSql(), new Object[] {ids});
+            return new ArrayList<>();
+        }
+
+        // cached entities are not read again
+        CacheStore<Object, Object[]> cache = metadata.getCache();
+        List<ENTITY> result = new ArrayList<>(ids.size());
+        List<Object> missing = new ArrayList<>();
+        try {
+            for (ID id : new LinkedHashSet<>(ids)) {
+                checkId(id);
+                Object[] values = cache != null ? cache.get(id) : null;
+                if (values != null)
+                    result.add((ENTITY) metadata.assemble(values));
+                else
+                    missing.add(id);
+            }
+            if (missing.isEmpty())
+                return result;
+
+            long tableVersion = queryExecutor.getTableVersion(metadata.getTableName());
+            for (ENTITY entity : executeQuery(metadata.getSelectInIdsSql(), new Object[] {missing})) {
+                if (cache != null) {
+                    Object[] values = metadata.disassemble(entity);
+                    cacheLoaded(cache, tableVersion, values[metadata.getIdIndex()], values);
+                }
+                result.add(entity);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Error copying cached " + metadata.getEntityClass().getName(), e);
+        }
+
+        return result;
+    }
+
+    // called by the generated repository implementations with a query parsed at build time
+    protected List<ENTITY> findByQuery(String query, Object[] parameters){
+        if (!queryExecutor.isConnected()) {
+            printQuery(query, parameters);
+            return new ArrayList<>();
+        }
+
+        QueryResultCache cache = queryCaches.get(query);
+        if (cache == null)
+            return executeQuery(query, parameters);
+
+        return findCached(cache, query, parameters);
+    }
+
+    // the version is read before the query, a write that races with it leaves a result that is never served
+    private List<ENTITY> findCached(QueryResultCache cache, String query, Object[] parameters){
+        Metadata metadata = getMetadata();
+        List<Object> arguments = cacheKey(parameters);
+        long tableVersion = queryExecutor.getTableVersion(metadata.getTableName());
+        try {
+            Object[][] rows = cache.get(arguments, tableVersion);
+            if (rows != null) {
+                List<ENTITY> result = new ArrayList<>(rows.length);
+                for (Object[] values : rows) {
+                    result.add((ENTITY) metadata.assemble(values));
+                }
+                return result;
+            }
+
+            List<ENTITY> result = executeQuery(query, parameters);
+            rows = new Object[result.size()][];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = metadata.disassemble(result.get(i));
+            }
+            cache.put(arguments, tableVersion, rows);
+
+            return result;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Error copying cached " + metadata.getEntityClass().getName(), e);
+        }
+    }
+
+    // the key outlives the call, collections are copied so a caller changing its list afterwards can't alter a cached key
+    private static List<Object> cacheKey(Object[] parameters){
+        Object[] arguments = parameters.clone();
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof Collection)
+                arguments[i] = Collections.unmodifiableList(new ArrayList<>((Collection) arguments[i]));
+        }
+        return Arrays.asList(arguments);
+    }
+
+    @Override
+    public void cacheQueryResults(String methodName, int maxRows, long expireAfterWrite) throws ParseException {
+        if (SQLQueryBuilder.isStreamMethod(methodName))
+            throw new IllegalArgumentException("Results of " + methodName + " are streamed and can't be cached");
+
+        queryCaches.put(compileQuery(methodName).getSql(), new QueryResultCache(maxRows, expireAfterWrite));
+    }
+
+    @Override
+    public CacheStatistics getQueryCacheStatistics(String methodName) throws ParseException {
+        QueryResultCache cache = queryCaches.get(compileQuery(methodName).getSql());
+        return cache != null ? cache.getStatistics() : null;
     }
 
     @Override
     public List<ENTITY> findByConditions(String methodName, Object[] values) throws ParseException {
-        SQLQueryBuilder builder = new SQLQueryBuilder();
+        return findByQuery(compileQuery(methodName), values);
+    }
+
+    @Override
+    public QueryPlan compileQuery(String methodName) throws ParseException {
+        return getMetadata().getQueryBuilder().compileQuery(methodName, getMetadata().getTableName());
+    }
+
+    @Override
+    public List<ENTITY> findByQuery(QueryPlan plan, Object[] values) {
+        plan.checkParameters(values);
+        return findByQuery(plan.getSql(), values);
+    }
 
-        String query = "SELECT * FROM "  + getMetadata().getTableName() + " WHERE" + builder.parseQuery(methodName, getMetadata().fieldsToColumns , values);
-        System.out.println(query);
-        return new ArrayList<>();
+    @Override
+    public Stream<ENTITY> streamByQuery(QueryPlan plan, Object[] values) {
+        plan.checkParameters(values);
+        return streamByQuery(plan.getSql(), values);
     }
 
 }
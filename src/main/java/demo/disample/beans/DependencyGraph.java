@@ -0,0 +1,74 @@
+package demo.disample.beans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Constructor dependencies between bean definitions. Setter injection does not create edges,
+// because setters run after every bean of the context has been instantiated.
+final class DependencyGraph {
+    private enum State {
+        VISITING,
+        VISITED
+    }
+
+    private final Map<BeanDefinition, List<BeanDefinition>> dependencies = new LinkedHashMap<>();
+
+    void addNode(BeanDefinition definition){
+        dependencies.putIfAbsent(definition, new ArrayList<>());
+    }
+
+    void addEdge(BeanDefinition definition, BeanDefinition dependency){
+        addNode(definition);
+        addNode(dependency);
+        dependencies.get(definition).add(dependency);
+    }
+
+    List<BeanDefinition> getDependencies(BeanDefinition definition){
+        List<BeanDefinition> list = dependencies.get(definition);
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    // dependencies always come before the beans that need them
+    List<BeanDefinition> topologicalOrder() throws Exception {
+        List<BeanDefinition> order = new ArrayList<>(dependencies.size());
+        Map<BeanDefinition, State> states = new HashMap<>();
+        List<BeanDefinition> path = new ArrayList<>();
+
+        for (BeanDefinition definition : dependencies.keySet()) {
+            visit(definition, states, path, order);
+        }
+
+        return order;
+    }
+
+    private void visit(BeanDefinition definition, Map<BeanDefinition, State> states, List<BeanDefinition> path, List<BeanDefinition> order) throws Exception {
+        State state = states.get(definition);
+        if (state == State.VISITED)
+            return;
+
+        if (state == State.VISITING) {
+            StringBuilder cycle = new StringBuilder();
+            for (BeanDefinition node : path.subList(path.indexOf(definition), path.size())) {
+                cycle.append(node).append(" -> ");
+            }
+            cycle.append(definition);
+
+            throw new Exception("Circular constructor dependency found: " + cycle);
+        }
+
+        states.put(definition, State.VISITING);
+        path.add(definition);
+
+        for (BeanDefinition dependency : getDependencies(definition)) {
+            visit(dependency, states, path, order);
+        }
+
+        path.remove(path.size() - 1);
+        states.put(definition, State.VISITED);
+        order.add(definition);
+    }
+}
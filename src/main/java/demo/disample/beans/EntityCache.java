@@ -0,0 +1,212 @@
+package demo.disample.beans;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded cache striped into segments by key hash, each a segmented LRU under its own lock. A new key
+// enters the probation part and is promoted to the protected part on its second hit, so a scan of
+// one-off ids only churns probation and doesn't push out the hot keys.
+final class EntityCache<K, V> implements CacheStore<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 8;
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtNanos;
+
+        private Entry(V value, long expiresAtNanos){
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private static final class Segment<K, V> extends ReentrantLock {
+        private final int probationCapacity;
+        private final int protectedCapacity;
+        private final LongAdder evictionCount;
+        // access ordered, the first entry is the least recently used
+        private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, Entry<V>> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private Segment(int capacity, LongAdder evictionCount){
+            this.protectedCapacity = capacity * 4 / 5;
+            this.probationCapacity = capacity - protectedCapacity;
+            this.evictionCount = evictionCount;
+        }
+
+        V get(K key){
+            lock();
+            try {
+                Entry<V> entry = protectedEntries.get(key);
+                if (entry != null) {
+                    if (!isExpired(entry))
+                        return entry.value;
+
+                    protectedEntries.remove(key);
+                    evictionCount.increment();
+                    return null;
+                }
+
+                entry = probation.remove(key);
+                if (entry == null)
+                    return null;
+                if (isExpired(entry)) {
+                    evictionCount.increment();
+                    return null;
+                }
+
+                protectedEntries.put(key, entry);
+                if (protectedEntries.size() > protectedCapacity) {
+                    Map.Entry<K, Entry<V>> demoted = removeEldest(protectedEntries);
+                    probation.put(demoted.getKey(), demoted.getValue());
+                    trimProbation();
+                }
+
+                return entry.value;
+            } finally {
+                unlock();
+            }
+        }
+
+        void put(K key, Entry<V> entry){
+            lock();
+            try {
+                if (protectedEntries.containsKey(key)) {
+                    protectedEntries.put(key, entry);
+                    return;
+                }
+
+                probation.put(key, entry);
+                trimProbation();
+            } finally {
+                unlock();
+            }
+        }
+
+        void remove(K key){
+            lock();
+            try {
+                if (protectedEntries.remove(key) == null)
+                    probation.remove(key);
+            } finally {
+                unlock();
+            }
+        }
+
+        void clear(){
+            lock();
+            try {
+                protectedEntries.clear();
+                probation.clear();
+            } finally {
+                unlock();
+            }
+        }
+
+        int size(){
+            lock();
+            try {
+                return protectedEntries.size() + probation.size();
+            } finally {
+                unlock();
+            }
+        }
+
+        private void trimProbation(){
+            while (probation.size() > probationCapacity) {
+                removeEldest(probation);
+                evictionCount.increment();
+            }
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final long expireAfterWriteNanos;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    EntityCache(int maxSize, long expireAfterWriteMillis){
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache size must be positive");
+        if (expireAfterWriteMillis < 0)
+            throw new IllegalArgumentException("Cache expiration must not be negative");
+
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(Math.max(2, segmentSize), evictionCount);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis);
+    }
+
+    private Segment<K, V> segmentFor(Object key){
+        int hash = key.hashCode();
+        // spread the high bits, ids are often small sequential numbers
+        hash ^= hash >>> 16;
+        return segments[hash & segmentMask];
+    }
+
+    private static boolean isExpired(Entry<?> entry){
+        return entry.expiresAtNanos != 0 && System.nanoTime() - entry.expiresAtNanos >= 0;
+    }
+
+    private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> map){
+        Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+        Map.Entry<K, V> eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+
+    @Override
+    public V get(K key){
+        V value = segmentFor(key).get(key);
+        if (value != null)
+            hitCount.increment();
+        else
+            missCount.increment();
+
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value){
+        long expiresAtNanos = 0;
+        if (expireAfterWriteNanos > 0)
+            // 0 means no expiry, a deadline that happens to be 0 is moved by a nanosecond
+            expiresAtNanos = (System.nanoTime() + expireAfterWriteNanos) | 1;
+
+        segmentFor(key).put(key, new Entry<>(value, expiresAtNanos));
+    }
+
+    @Override
+    public void invalidate(K key){
+        segmentFor(key).remove(key);
+    }
+
+    @Override
+    public void invalidateAll(){
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public CacheStatistics getStatistics(){
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+
+        return new CacheStatistics(size, hitCount.sum(), missCount.sum(), evictionCount.sum());
+    }
+}
@@ -0,0 +1,241 @@
+package demo.disample.beans;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+// Binary form of the column values of an entity, in the column order of the repository metadata.
+// A null bitmap over the object columns comes first; primitives take fixed-width slots, dates their
+// epoch millis, strings and decimals a length-prefixed UTF-8 form. Null values take no slot.
+final class EntityCodec {
+
+    private static final int INT = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int FLOAT = 3;
+    private static final int SHORT = 4;
+    private static final int BYTE = 5;
+    private static final int BOOLEAN = 6;
+    private static final int CHAR = 7;
+    private static final int STRING = 8;
+    private static final int DECIMAL = 9;
+    private static final int DATE = 10;
+    private static final int SQL_DATE = 11;
+    private static final int TIMESTAMP = 12;
+
+    private final int[] kinds;
+    // bit of each column in the null bitmap, -1 for primitive columns
+    private final int[] nullBits;
+    private final int bitmapSize;
+
+    EntityCodec(Class entityClass, Class[] columnTypes) throws Exception {
+        this.kinds = new int[columnTypes.length];
+        this.nullBits = new int[columnTypes.length];
+
+        int nullableCount = 0;
+        for (int i = 0; i < columnTypes.length; i++) {
+            Class type = columnTypes[i];
+            kinds[i] = kindOf(type);
+            if (kinds[i] < 0)
+                throw new Exception("Column type " + type.getName() + " of " + entityClass.getName() + " can't be cached off heap");
+
+            nullBits[i] = type.isPrimitive() ? -1 : nullableCount++;
+        }
+        this.bitmapSize = (nullableCount + 7) / 8;
+    }
+
+    private static int kindOf(Class type){
+        if (type == int.class || type == Integer.class)
+            return INT;
+        if (type == long.class || type == Long.class)
+            return LONG;
+        if (type == double.class || type == Double.class)
+            return DOUBLE;
+        if (type == float.class || type == Float.class)
+            return FLOAT;
+        if (type == short.class || type == Short.class)
+            return SHORT;
+        if (type == byte.class || type == Byte.class)
+            return BYTE;
+        if (type == boolean.class || type == Boolean.class)
+            return BOOLEAN;
+        if (type == char.class || type == Character.class)
+            return CHAR;
+        if (type == String.class)
+            return STRING;
+        if (type == BigDecimal.class)
+            return DECIMAL;
+        if (type == Date.class)
+            return DATE;
+        if (type == java.sql.Date.class)
+            return SQL_DATE;
+        if (type == Timestamp.class)
+            return TIMESTAMP;
+
+        return -1;
+    }
+
+    // the UTF-8 form of the string and decimal columns, encoded once for size() and write()
+    byte[][] encodeText(Object[] values){
+        byte[][] text = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null)
+                continue;
+
+            if (kinds[i] == STRING)
+                text[i] = ((String) values[i]).getBytes(StandardCharsets.UTF_8);
+            else if (kinds[i] == DECIMAL)
+                text[i] = values[i].toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        return text;
+    }
+
+    int size(Object[] values, byte[][] text){
+        int size = bitmapSize;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null)
+                continue;
+
+            switch (kinds[i]) {
+                case BYTE:
+                case BOOLEAN:
+                    size += 1;
+                    break;
+                case SHORT:
+                case CHAR:
+                    size += 2;
+                    break;
+                case INT:
+                case FLOAT:
+                    size += 4;
+                    break;
+                case STRING:
+                case DECIMAL:
+                    size += 4 + text[i].length;
+                    break;
+                default:
+                    size += 8;
+            }
+        }
+
+        return size;
+    }
+
+    // writes at the position of the buffer and moves it past the values
+    void write(ByteBuffer buffer, Object[] values, byte[][] text){
+        int bitmapPosition = buffer.position();
+        for (int i = 0; i < bitmapSize; i++) {
+            buffer.put((byte) 0);
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            // only object columns are null, the accessors box the primitive ones
+            if (value == null) {
+                int bit = nullBits[i];
+                int position = bitmapPosition + bit / 8;
+                buffer.put(position, (byte) (buffer.get(position) | (1 << (bit % 8))));
+                continue;
+            }
+
+            switch (kinds[i]) {
+                case INT:
+                    buffer.putInt((Integer) value);
+                    break;
+                case LONG:
+                    buffer.putLong((Long) value);
+                    break;
+                case DOUBLE:
+                    buffer.putDouble((Double) value);
+                    break;
+                case FLOAT:
+                    buffer.putFloat((Float) value);
+                    break;
+                case SHORT:
+                    buffer.putShort((Short) value);
+                    break;
+                case BYTE:
+                    buffer.put((Byte) value);
+                    break;
+                case BOOLEAN:
+                    buffer.put((byte) ((Boolean) value ? 1 : 0));
+                    break;
+                case CHAR:
+                    buffer.putChar((Character) value);
+                    break;
+                case STRING:
+                case DECIMAL:
+                    buffer.putInt(text[i].length);
+                    buffer.put(text[i]);
+                    break;
+                default:
+                    buffer.putLong(((Date) value).getTime());
+            }
+        }
+    }
+
+    // reads from the position of the buffer, every call returns new objects
+    Object[] read(ByteBuffer buffer){
+        int bitmapPosition = buffer.position();
+        buffer.position(bitmapPosition + bitmapSize);
+
+        Object[] values = new Object[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            int bit = nullBits[i];
+            if (bit >= 0 && (buffer.get(bitmapPosition + bit / 8) & (1 << (bit % 8))) != 0)
+                continue;
+
+            switch (kinds[i]) {
+                case INT:
+                    values[i] = buffer.getInt();
+                    break;
+                case LONG:
+                    values[i] = buffer.getLong();
+                    break;
+                case DOUBLE:
+                    values[i] = buffer.getDouble();
+                    break;
+                case FLOAT:
+                    values[i] = buffer.getFloat();
+                    break;
+                case SHORT:
+                    values[i] = buffer.getShort();
+                    break;
+                case BYTE:
+                    values[i] = buffer.get();
+                    break;
+                case BOOLEAN:
+                    values[i] = buffer.get() != 0;
+                    break;
+                case CHAR:
+                    values[i] = buffer.getChar();
+                    break;
+                case STRING:
+                    values[i] = new String(readText(buffer), StandardCharsets.UTF_8);
+                    break;
+                case DECIMAL:
+                    values[i] = new BigDecimal(new String(readText(buffer), StandardCharsets.UTF_8));
+                    break;
+                case DATE:
+                    values[i] = new Date(buffer.getLong());
+                    break;
+                case SQL_DATE:
+                    values[i] = new java.sql.Date(buffer.getLong());
+                    break;
+                default:
+                    values[i] = new Timestamp(buffer.getLong());
+            }
+        }
+
+        return values;
+    }
+
+    private static byte[] readText(ByteBuffer buffer){
+        byte[] text = new byte[buffer.getInt()];
+        buffer.get(text);
+        return text;
+    }
+}
@@ -0,0 +1,216 @@
+package demo.disample.beans;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps result rows to entities. The setters are resolved once per entity, the column indexes once per SQL,
+// so a row is read with index based getters and written through method handles; int, long and double
+// columns go into primitive fields without boxing.
+final class EntityMapper<ENTITY> implements QueryExecutor.ResultMapper<ENTITY> {
+
+    private abstract static class ColumnSetter {
+        final MethodHandle setter;
+
+        ColumnSetter(MethodHandle setter){
+            this.setter = setter;
+        }
+
+        abstract void set(Object entity, ResultSet resultSet, int index) throws Throwable;
+    }
+
+    private static final class IntSetter extends ColumnSetter {
+        IntSetter(MethodHandle setter){
+            super(setter.asType(MethodType.methodType(void.class, Object.class, int.class)));
+        }
+
+        @Override
+        void set(Object entity, ResultSet resultSet, int index) throws Throwable {
+            int value = resultSet.getInt(index);
+            // NULL keeps the field default
+            if (value != 0 || !resultSet.wasNull())
+                setter.invokeExact(entity, value);
+        }
+    }
+
+    private static final class LongSetter extends ColumnSetter {
+        LongSetter(MethodHandle setter){
+            super(setter.asType(MethodType.methodType(void.class, Object.class, long.class)));
+        }
+
+        @Override
+        void set(Object entity, ResultSet resultSet, int index) throws Throwable {
+            long value = resultSet.getLong(index);
+            if (value != 0 || !resultSet.wasNull())
+                setter.invokeExact(entity, value);
+        }
+    }
+
+    private static final class DoubleSetter extends ColumnSetter {
+        DoubleSetter(MethodHandle setter){
+            super(setter.asType(MethodType.methodType(void.class, Object.class, double.class)));
+        }
+
+        @Override
+        void set(Object entity, ResultSet resultSet, int index) throws Throwable {
+            double value = resultSet.getDouble(index);
+            if (value != 0 || !resultSet.wasNull())
+                setter.invokeExact(entity, value);
+        }
+    }
+
+    private static final class ObjectSetter extends ColumnSetter {
+        private final Class type;
+
+        ObjectSetter(MethodHandle setter, Class type){
+            super(setter.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+            this.type = type;
+        }
+
+        @Override
+        void set(Object entity, ResultSet resultSet, int index) throws Throwable {
+            Object value = getValue(resultSet, index);
+            if (value != null || !type.isPrimitive())
+                setter.invokeExact(entity, value);
+        }
+
+        private Object getValue(ResultSet resultSet, int index) throws SQLException {
+            Object value;
+            if (type == String.class)
+                return resultSet.getString(index);
+            else if (type == Integer.class)
+                value = resultSet.getInt(index);
+            else if (type == Long.class)
+                value = resultSet.getLong(index);
+            else if (type == Double.class)
+                value = resultSet.getDouble(index);
+            else if (type == Boolean.class || type == boolean.class)
+                value = resultSet.getBoolean(index);
+            else if (type == BigDecimal.class)
+                return resultSet.getBigDecimal(index);
+            else if (type == java.sql.Date.class)
+                return resultSet.getDate(index);
+            else if (type == Date.class || type == java.sql.Timestamp.class)
+                return resultSet.getTimestamp(index);
+            else
+                return resultSet.getObject(index, type);
+
+            return resultSet.wasNull() ? null : value;
+        }
+    }
+
+    private static final class Row<ENTITY> implements QueryExecutor.RowMapper<ENTITY> {
+        private final MethodHandle constructor;
+        private final int[] indexes;
+        private final ColumnSetter[] setters;
+
+        private Row(MethodHandle constructor, int[] indexes, ColumnSetter[] setters){
+            this.constructor = constructor;
+            this.indexes = indexes;
+            this.setters = setters;
+        }
+
+        @Override
+        public ENTITY map(ResultSet resultSet) throws Exception {
+            try {
+                Object entity = constructor.invokeExact();
+                for (int i = 0; i < setters.length; i++) {
+                    setters[i].set(entity, resultSet, indexes[i]);
+                }
+
+                return (ENTITY) entity;
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    private final MethodHandle constructor;
+    // result set labels are matched ignoring case, databases fold unquoted names differently
+    private final Map<String, ColumnSetter> setters = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, Row<ENTITY>> rows = new ConcurrentHashMap<>();
+
+    EntityMapper(Class entityClass, Map<String, String> columnsToFields) throws Exception {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        Constructor entityConstructor;
+        try {
+            entityConstructor = entityClass.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new Exception("Entity type " + entityClass.getName() + " must have a constructor without parameters");
+        }
+        entityConstructor.setAccessible(true);
+        this.constructor = lookup.unreflectConstructor(entityConstructor).asType(MethodType.methodType(Object.class));
+
+        for (Map.Entry<String, String> entry : columnsToFields.entrySet()) {
+            Field field = entityClass.getDeclaredField(entry.getValue());
+            field.setAccessible(true);
+            setters.put(entry.getKey(), createSetter(lookup.unreflectSetter(field), field.getType()));
+        }
+    }
+
+    ENTITY newInstance() throws Exception {
+        try {
+            return (ENTITY) (Object) constructor.invokeExact();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static ColumnSetter createSetter(MethodHandle setter, Class type){
+        if (type == int.class)
+            return new IntSetter(setter);
+        if (type == long.class)
+            return new LongSetter(setter);
+        if (type == double.class)
+            return new DoubleSetter(setter);
+
+        return new ObjectSetter(setter, type);
+    }
+
+    @Override
+    public QueryExecutor.RowMapper<ENTITY> prepare(String sql, ResultSet resultSet) throws SQLException {
+        Row<ENTITY> row = rows.get(sql);
+        if (row == null) {
+            row = createRow(resultSet.getMetaData());
+            rows.putIfAbsent(sql, row);
+        }
+
+        return row;
+    }
+
+    private Row<ENTITY> createRow(ResultSetMetaData metaData) throws SQLException {
+        List<Integer> indexes = new ArrayList<>();
+        List<ColumnSetter> columnSetters = new ArrayList<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            ColumnSetter setter = setters.get(metaData.getColumnLabel(i));
+            if (setter != null) {
+                indexes.add(i);
+                columnSetters.add(setter);
+            }
+        }
+
+        int[] indexArray = new int[indexes.size()];
+        for (int i = 0; i < indexArray.length; i++) {
+            indexArray[i] = indexes.get(i);
+        }
+
+        return new Row<>(constructor, indexArray, columnSetters.toArray(new ColumnSetter[0]));
+    }
+}
@@ -2,11 +2,30 @@ package demo.disample.beans;
 
 import java.text.ParseException;
 import java.util.List;
+import java.util.stream.Stream;
 
 interface EntityMetadata<ENTITY> {
 
     void setGenericTypes(Class[] genericTypes) throws Exception;
 
+    void setQueryExecutor(QueryExecutor queryExecutor);
+
     List<ENTITY> findByConditions(String methodName, Object[] values) throws ParseException;
 
+    QueryPlan compileQuery(String methodName) throws ParseException;
+
+    List<ENTITY> findByQuery(QueryPlan plan, Object[] values);
+
+    Stream<ENTITY> streamByQuery(QueryPlan plan, Object[] values);
+
+    // null when the entity is not @Cacheable
+    CacheStatistics getCacheStatistics();
+
+    void coalesceGetOne(long windowMicros, int maxBatchSize);
+
+    void cacheQueryResults(String methodName, int maxRows, long expireAfterWrite) throws ParseException;
+
+    // null when the method is not @CachedQuery
+    CacheStatistics getQueryCacheStatistics(String methodName) throws ParseException;
+
 }
@@ -0,0 +1,140 @@
+package demo.disample.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Collects concurrent getOne calls into batches read by one query. The first call of a batch waits for the
+// window and then reads the batch itself, unless a call fills it first and reads it at once; no timer thread
+// is involved. A call for an id that is already requested waits for that request instead of adding another.
+final class GetOneBatcher {
+
+    // reads the ids, returns the column values by id; ids the table doesn't have are left out
+    interface Loader {
+        Map<Object, Object[]> load(List<Object> ids);
+    }
+
+    private static final class Batch {
+        private final List<Object> ids = new ArrayList<>();
+        private final List<CompletableFuture<Object[]>> futures = new ArrayList<>();
+    }
+
+    private final Loader loader;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    // requested ids, until their batch is read
+    private final Map<Object, CompletableFuture<Object[]>> requests = new ConcurrentHashMap<>();
+    private Batch current;
+
+    GetOneBatcher(Loader loader, long windowMicros, int maxBatchSize){
+        if (windowMicros < 0)
+            throw new IllegalArgumentException("Batch window must not be negative");
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive");
+
+        this.loader = loader;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    int getMaxBatchSize(){
+        return maxBatchSize;
+    }
+
+    // the column values of the id, null when the table doesn't have it
+    Object[] load(Object id){
+        CompletableFuture<Object[]> future;
+        Batch led = null;
+        Batch full = null;
+        synchronized (this) {
+            future = requests.get(id);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                requests.put(id, future);
+
+                if (current == null) {
+                    current = new Batch();
+                    led = current;
+                }
+                current.ids.add(id);
+                current.futures.add(future);
+                if (current.ids.size() >= maxBatchSize) {
+                    full = current;
+                    current = null;
+                }
+            }
+        }
+
+        if (full != null)
+            dispatch(full);
+        else if (led != null)
+            awaitWindow(led, future);
+
+        return join(future);
+    }
+
+    private void awaitWindow(Batch batch, CompletableFuture<Object[]> future){
+        try {
+            future.get(windowNanos, TimeUnit.NANOSECONDS);
+            return;
+        } catch (TimeoutException e) {
+            // the batch is still open, unless a call filled it meanwhile
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            return;
+        }
+
+        synchronized (this) {
+            if (current != batch)
+                return;
+            current = null;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch batch){
+        try {
+            Map<Object, Object[]> rows = loader.load(batch.ids);
+            for (int i = 0; i < batch.ids.size(); i++) {
+                batch.futures.get(i).complete(rows.get(batch.ids.get(i)));
+            }
+        } catch (RuntimeException | Error e) {
+            for (CompletableFuture<Object[]> future : batch.futures) {
+                future.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            for (int i = 0; i < batch.ids.size(); i++) {
+                requests.remove(batch.ids.get(i), batch.futures.get(i));
+            }
+        }
+    }
+
+    // a later call for a written id is not answered by a read that may have started before the write
+    void invalidate(Object id){
+        requests.remove(id);
+    }
+
+    private static Object[] join(CompletableFuture<Object[]> future){
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batched getOne", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new IllegalStateException(cause);
+        }
+    }
+}
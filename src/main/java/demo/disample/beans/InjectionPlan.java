@@ -0,0 +1,264 @@
+package demo.disample.beans;
+
+import demo.disample.annotations.Autowired;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+// Compiled constructor and @Autowired invokers of a bean class. Plans are cached per class,
+// so rebuilding a context only runs the invokers instead of reflecting over the class again.
+final class InjectionPlan {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    // plans read from a persisted wiring plan, taken over by the cache on first use
+    private static final Map<Class, InjectionPlan> RESTORED_PLANS = new ConcurrentHashMap<>();
+
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+        @Override
+        protected InjectionPlan computeValue(Class<?> type) {
+            InjectionPlan plan = RESTORED_PLANS.remove(type);
+            return plan != null ? plan : new InjectionPlan(type, null, null);
+        }
+    };
+
+    interface ConstructorInvoker {
+        Object newInstance(Object[] arguments) throws Throwable;
+    }
+
+    static final class InjectionPoint {
+        private final Member member;
+        private final Class dependencyType;
+        private final BiConsumer<Object, Object> injector;
+
+        private InjectionPoint(Member member, Class dependencyType, BiConsumer<Object, Object> injector){
+            this.member = member;
+            this.dependencyType = dependencyType;
+            this.injector = injector;
+        }
+
+        public String getName() {
+            return member.getName();
+        }
+
+        // the @Autowired field or setter method
+        public Member getMember() {
+            return member;
+        }
+
+        public Class getDependencyType() {
+            return dependencyType;
+        }
+
+        void inject(Object target, Object dependency){
+            injector.accept(target, dependency);
+        }
+    }
+
+    private final Class beanClass;
+    private Constructor constructor;
+    private ConstructorInvoker constructorInvoker;
+    private List<InjectionPoint> injectionPoints;
+    private Exception error;
+
+    // a null constructor or member list is discovered through reflection over the whole class
+    private InjectionPlan(Class beanClass, Constructor constructor, List<Member> members){
+        this.beanClass = beanClass;
+        try {
+            this.constructor = constructor != null ? constructor : findConstructor(beanClass);
+            this.constructorInvoker = compileConstructor(this.constructor);
+            this.injectionPoints = Collections.unmodifiableList(compileInjectionPoints(members != null ? members : findInjectionMembers(beanClass)));
+        } catch (Exception e) {
+            this.error = e;
+        }
+    }
+
+    // skips the constructor and @Autowired member discovery of a class already resolved by an earlier start
+    static void restore(Class beanClass, Constructor constructor, List<Member> members){
+        RESTORED_PLANS.putIfAbsent(beanClass, new InjectionPlan(beanClass, constructor, members));
+    }
+
+    static InjectionPlan of(Class beanClass) throws Exception {
+        InjectionPlan plan = PLANS.get(beanClass);
+        if (plan.error != null)
+            throw new Exception("Error compiling injection plan of " + beanClass.getName() + ": " + plan.error.getMessage(), plan.error);
+
+        return plan;
+    }
+
+    public Class getBeanClass() {
+        return beanClass;
+    }
+
+    public Constructor getConstructor() {
+        return constructor;
+    }
+
+    public List<InjectionPoint> getInjectionPoints() {
+        return injectionPoints;
+    }
+
+    Object newInstance(Object[] arguments) throws Exception {
+        try {
+            return constructorInvoker.newInstance(arguments);
+        } catch (Throwable e) {
+            throw new Exception("Error creating bean " + beanClass.getName(), e);
+        }
+    }
+
+    private static Constructor findConstructor(Class beanClass) throws Exception {
+        Constructor constructor = null;
+        for (Constructor candidate : beanClass.getDeclaredConstructors()) {
+            if (!candidate.isAnnotationPresent(Autowired.class))
+                continue;
+
+            if (constructor != null)
+                throw new Exception("Class " + beanClass.getName() + " has more than one constructor with @Autowired annotation");
+
+            constructor = candidate;
+        }
+
+        if (constructor == null) {
+            try {
+                constructor = beanClass.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new Exception("Class " + beanClass.getName() + " must have a default constructor or a constructor with @Autowired annotation");
+            }
+        }
+
+        return constructor;
+    }
+
+    private static ConstructorInvoker compileConstructor(Constructor constructor) throws Exception {
+        if (constructor.getParameterCount() == 0 && isLinkable(constructor.getModifiers(), constructor.getDeclaringClass())) {
+            try {
+                MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        handle, handle.type());
+                Supplier supplier = (Supplier) site.getTarget().invokeExact();
+                return arguments -> supplier.get();
+            } catch (Throwable e) {
+                // falls back to a plain method handle
+            }
+        }
+
+        constructor.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflectConstructor(constructor)
+                .asSpreader(Object[].class, constructor.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object[].class));
+
+        return arguments -> handle.invokeExact(arguments);
+    }
+
+    private static List<Member> findInjectionMembers(Class beanClass) throws Exception {
+        List<Member> members = new ArrayList<>();
+
+        for (Field field : beanClass.getDeclaredFields()) {
+            if (!field.isAnnotationPresent(Autowired.class))
+                continue;
+
+            if (Modifier.isFinal(field.getModifiers()) || Modifier.isStatic(field.getModifiers()))
+                throw new Exception("Field " + field.getName() + " with @Autowired annotation must not be final or static");
+
+            members.add(field);
+        }
+
+        for (Method method : beanClass.getDeclaredMethods()) {
+            if (!method.isAnnotationPresent(Autowired.class))
+                continue;
+
+            if (method.getParameterCount() != 1)
+                throw new Exception("Method " + method.getName() + " with @Autowired annotation must have exactly one parameter");
+
+            members.add(method);
+        }
+
+        return members;
+    }
+
+    private static List<InjectionPoint> compileInjectionPoints(List<Member> members) throws Exception {
+        List<InjectionPoint> injectionPoints = new ArrayList<>();
+
+        for (Member member : members) {
+            if (member instanceof Field) {
+                Field field = (Field) member;
+                field.setAccessible(true);
+                MethodHandle handle = LOOKUP.unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                injectionPoints.add(new InjectionPoint(field, field.getType(), toConsumer(handle)));
+            } else {
+                Method method = (Method) member;
+                injectionPoints.add(new InjectionPoint(method, method.getParameterTypes()[0], compileSetter(method)));
+            }
+        }
+
+        return injectionPoints;
+    }
+
+    private static BiConsumer<Object, Object> compileSetter(Method method) throws Exception {
+        if (isLinkable(method.getModifiers(), method.getDeclaringClass())) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle, handle.type().changeReturnType(void.class));
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                // falls back to a plain method handle
+            }
+        }
+
+        method.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflect(method)
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+        return toConsumer(handle);
+    }
+
+    private static BiConsumer<Object, Object> toConsumer(MethodHandle handle){
+        return (target, value) -> {
+            try {
+                handle.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    // generated lambdas live next to this class, so they can only call public members
+    // of public classes that are visible from its class loader
+    private static boolean isLinkable(int modifiers, Class declaringClass){
+        if (!Modifier.isPublic(modifiers))
+            return false;
+
+        for (Class type = declaringClass; type != null; type = type.getEnclosingClass()) {
+            if (!Modifier.isPublic(type.getModifiers()))
+                return false;
+        }
+
+        try {
+            return Class.forName(declaringClass.getName(), false, InjectionPlan.class.getClassLoader()) == declaringClass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
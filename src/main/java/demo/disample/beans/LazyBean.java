@@ -0,0 +1,124 @@
+package demo.disample.beans;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+// Holder of a bean that is created on first use. The first creation is double-checked under the
+// holder's monitor, every later access is a single volatile read. The bean is constructed first and
+// its injection points run after, so like eager singletons it can be injected into the beans it needs
+// through setters and fields; only a cycle through constructors fails.
+final class LazyBean {
+    interface Factory {
+        Object create() throws Exception;
+    }
+
+    interface Initializer {
+        void initialize(Object bean) throws Exception;
+    }
+
+    private final Class beanType;
+    private final Factory factory;
+    private final Initializer initializer;
+    private volatile Object instance;
+    private volatile Object proxy;
+    private boolean creating;
+    // constructed but not initialized yet, only seen by the thread holding the monitor
+    private Object initializing;
+
+    LazyBean(Class beanType, Factory factory){
+        this(beanType, factory, null);
+    }
+
+    LazyBean(Class beanType, Factory factory, Initializer initializer){
+        this.beanType = beanType;
+        this.factory = factory;
+        this.initializer = initializer;
+    }
+
+    Class getBeanType() {
+        return beanType;
+    }
+
+    boolean isCreated() {
+        return instance != null;
+    }
+
+    Object get() {
+        Object result = instance;
+        if (result != null)
+            return result;
+
+        synchronized (this) {
+            result = instance;
+            if (result != null)
+                return result;
+
+            // asked again by its own injection points
+            if (initializing != null)
+                return initializing;
+
+            if (creating)
+                throw new IllegalStateException("Circular constructor dependency while creating lazy bean '" + beanType.getName() + "'");
+
+            creating = true;
+            try {
+                result = factory.create();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Error creating lazy bean '" + beanType.getName() + "'", e);
+            } finally {
+                creating = false;
+            }
+
+            if (initializer != null) {
+                initializing = result;
+                try {
+                    initializer.initialize(result);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException("Error initializing lazy bean '" + beanType.getName() + "'", e);
+                } finally {
+                    initializing = null;
+                }
+            }
+
+            instance = result;
+        }
+
+        return result;
+    }
+
+    // proxies of the bean's own type are shared by every injection point
+    Object getProxy(){
+        Object result = proxy;
+        if (result == null) {
+            synchronized (this) {
+                result = proxy;
+                if (result == null) {
+                    result = createProxy(beanType);
+                    proxy = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    Object createProxy(Class _interface){
+        if (!_interface.isInterface())
+            throw new IllegalArgumentException("Parameter " + _interface.getName() + " is not an interface");
+
+        if (_interface == beanType && proxy != null)
+            return proxy;
+
+        return Proxy.newProxyInstance(_interface.getClassLoader(), new Class[] {_interface}, (proxy, method, args) -> {
+            try {
+                return method.invoke(get(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package demo.disample.beans;
+
+import java.util.Arrays;
+
+// Open addressing map of long keys to non-negative int values, without boxing. Linear probing; a removed
+// key shifts the following entries of its run back, so lookups need no tombstones.
+final class LongIntIndex {
+
+    private static final int ABSENT = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntIndex(int expectedSize){
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity){
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        this.mask = capacity - 1;
+    }
+
+    private int slot(long key){
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    int size(){
+        return size;
+    }
+
+    // -1 when the key is absent
+    int get(long key){
+        for (int i = slot(key); values[i] != ABSENT; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return values[i];
+        }
+
+        return ABSENT;
+    }
+
+    void put(long key, int value){
+        if (value < 0)
+            throw new IllegalArgumentException("Index value must not be negative");
+
+        int i = slot(key);
+        for (; values[i] != ABSENT; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        // at most half full, so probe runs stay short
+        if (++size * 2 > values.length)
+            rehash();
+    }
+
+    void remove(long key){
+        int i = slot(key);
+        for (; values[i] != ABSENT; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                break;
+        }
+        if (values[i] == ABSENT)
+            return;
+
+        size--;
+        // moves back every following entry of the run that may not stay behind the gap
+        int gap = i;
+        for (int j = (gap + 1) & mask; values[j] != ABSENT; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = ABSENT;
+    }
+
+    void clear(){
+        Arrays.fill(values, ABSENT);
+        size = 0;
+    }
+
+    private void rehash(){
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldValues.length * 2);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != ABSENT)
+                put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
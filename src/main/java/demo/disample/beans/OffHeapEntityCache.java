@@ -0,0 +1,166 @@
+package demo.disample.beans;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Entity cache in one direct buffer, so the cached entities are neither scanned nor copied by the collector.
+// The buffer is a ring of encoded records: [length][id][expiry][values]. New records go at the head; when
+// the head reaches the oldest record it is reclaimed, and its id dropped from the index if still pointing
+// to it. Rewritten or invalidated records stay in the ring, unindexed, until the head passes them.
+final class OffHeapEntityCache implements CacheStore<Object, Object[]> {
+
+    private static final int HEADER_SIZE = 4 + 8 + 8;
+
+    private final EntityCodec codec;
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int maxSize;
+    private final long expireAfterWriteNanos;
+    // id to offset of its record
+    private final LongIntIndex index;
+
+    // records are in [tail, head), or in [tail, wrapLimit) and [0, head) once the head wrapped around
+    private int head;
+    private int tail;
+    private int wrapLimit;
+    private boolean wrapped;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    OffHeapEntityCache(EntityCodec codec, long maxBytes, int maxSize, long expireAfterWriteMillis){
+        if (maxBytes < HEADER_SIZE || maxBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Off heap cache size must be between " + HEADER_SIZE + " and " + Integer.MAX_VALUE + " bytes");
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache size must be positive");
+        if (expireAfterWriteMillis < 0)
+            throw new IllegalArgumentException("Cache expiration must not be negative");
+
+        this.codec = codec;
+        this.capacity = (int) maxBytes;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.maxSize = maxSize;
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis);
+        this.index = new LongIntIndex(Math.min(maxSize, 1 << 16));
+    }
+
+    private static long keyOf(Object id){
+        return ((Number) id).longValue();
+    }
+
+    @Override
+    public synchronized Object[] get(Object id){
+        long key = keyOf(id);
+        int offset = index.get(key);
+        if (offset < 0) {
+            missCount.increment();
+            return null;
+        }
+
+        long expiresAtNanos = buffer.getLong(offset + 12);
+        if (expiresAtNanos != 0 && System.nanoTime() - expiresAtNanos >= 0) {
+            index.remove(key);
+            evictionCount.increment();
+            missCount.increment();
+            return null;
+        }
+
+        hitCount.increment();
+        buffer.position(offset + HEADER_SIZE);
+        return codec.read(buffer);
+    }
+
+    @Override
+    public void put(Object id, Object[] values){
+        long key = keyOf(id);
+        // encoded outside the lock, only the copy into the ring is serialized
+        byte[][] text = codec.encodeText(values);
+        int length = HEADER_SIZE + codec.size(values, text);
+        long expiresAtNanos = 0;
+        if (expireAfterWriteNanos > 0)
+            expiresAtNanos = (System.nanoTime() + expireAfterWriteNanos) | 1;
+
+        synchronized (this) {
+            index.remove(key);
+            // an entity bigger than the whole ring is not cached
+            if (length > capacity)
+                return;
+
+            int offset = allocate(length);
+            buffer.position(offset);
+            buffer.putInt(length);
+            buffer.putLong(key);
+            buffer.putLong(expiresAtNanos);
+            codec.write(buffer, values, text);
+            index.put(key, offset);
+        }
+    }
+
+    private int allocate(int length){
+        while (index.size() >= maxSize) {
+            reclaimTail();
+        }
+
+        while (true) {
+            if (!wrapped) {
+                if (head + length <= capacity)
+                    break;
+
+                if (tail == head) {
+                    head = 0;
+                    tail = 0;
+                } else {
+                    wrapLimit = head;
+                    head = 0;
+                    wrapped = true;
+                }
+            } else if (head + length <= tail) {
+                break;
+            } else {
+                reclaimTail();
+            }
+        }
+
+        int offset = head;
+        head += length;
+        return offset;
+    }
+
+    private void reclaimTail(){
+        if (!wrapped && tail == head)
+            return;
+
+        int length = buffer.getInt(tail);
+        long key = buffer.getLong(tail + 4);
+        if (index.get(key) == tail) {
+            index.remove(key);
+            evictionCount.increment();
+        }
+
+        tail += length;
+        if (wrapped && tail == wrapLimit) {
+            tail = 0;
+            wrapped = false;
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(Object id){
+        index.remove(keyOf(id));
+    }
+
+    @Override
+    public synchronized void invalidateAll(){
+        index.clear();
+        head = 0;
+        tail = 0;
+        wrapped = false;
+    }
+
+    @Override
+    public synchronized CacheStatistics getStatistics(){
+        return new CacheStatistics(index.size(), hitCount.sum(), missCount.sum(), evictionCount.sum());
+    }
+}
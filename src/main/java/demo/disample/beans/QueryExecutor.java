@@ -0,0 +1,481 @@
+package demo.disample.beans;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Runs the repository SQL on pooled connections. One executor is shared by the repositories of a context;
+// the pool is attached once the DataSource bean exists, until then the repositories only print their SQL.
+final class QueryExecutor {
+
+    interface RowMapper<T> {
+        T map(ResultSet resultSet) throws Exception;
+    }
+
+    // called once per executed query, the row mapper it returns reads every row of the result
+    interface ResultMapper<T> {
+        RowMapper<T> prepare(String sql, ResultSet resultSet) throws SQLException;
+    }
+
+    interface ConnectionCallback<T> {
+        T execute(ConnectionPool.PooledConnection connection) throws SQLException;
+    }
+
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final int DEFAULT_FETCH_SIZE = 500;
+    // the IN list limit of the most restrictive common driver
+    static final int DEFAULT_MAX_IN_LIST_SIZE = 1000;
+    static final int DEFAULT_QUERY_PARALLELISM = 4;
+
+    private final int batchSize;
+    private final int fetchSize;
+    private final int maxInListSize;
+    private final int queryParallelism;
+    // runs the chunks of long IN list queries; created by the first of them, its threads end when idle
+    private ThreadPoolExecutor chunkExecutor;
+    private boolean shutdown;
+    private volatile ConnectionPool connectionPool;
+    // bumped after every repository write, cached query results read at an older version are not served
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+
+    QueryExecutor(){
+        this(DEFAULT_BATCH_SIZE, DEFAULT_FETCH_SIZE);
+    }
+
+    QueryExecutor(int batchSize, int fetchSize){
+        this(batchSize, fetchSize, DEFAULT_MAX_IN_LIST_SIZE, DEFAULT_QUERY_PARALLELISM);
+    }
+
+    QueryExecutor(int batchSize, int fetchSize, int maxInListSize, int queryParallelism){
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive");
+        if (fetchSize < 1)
+            throw new IllegalArgumentException("Fetch size must be positive");
+        if (maxInListSize < 1)
+            throw new IllegalArgumentException("IN list size must be positive");
+        if (queryParallelism < 1)
+            throw new IllegalArgumentException("Query parallelism must be positive");
+
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+        this.maxInListSize = maxInListSize;
+        this.queryParallelism = queryParallelism;
+    }
+
+    private synchronized ThreadPoolExecutor getChunkExecutor(){
+        if (shutdown)
+            throw new IllegalStateException("Query executor is shut down");
+
+        if (chunkExecutor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            chunkExecutor = new ThreadPoolExecutor(queryParallelism, queryParallelism, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "query-chunk-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            chunkExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return chunkExecutor;
+    }
+
+    // closes the connection pool and stops the chunk threads once their queries are read
+    synchronized void shutdown(){
+        shutdown = true;
+        if (chunkExecutor != null)
+            chunkExecutor.shutdown();
+
+        ConnectionPool pool = connectionPool;
+        if (pool != null)
+            pool.close();
+    }
+
+    int getMaxInListSize(){
+        return maxInListSize;
+    }
+
+    int getBatchSize(){
+        return batchSize;
+    }
+
+    void setConnectionPool(ConnectionPool connectionPool){
+        this.connectionPool = connectionPool;
+    }
+
+    ConnectionPool getConnectionPool(){
+        return connectionPool;
+    }
+
+    boolean isConnected(){
+        return connectionPool != null;
+    }
+
+    long getTableVersion(String table){
+        return tableVersion(table).get();
+    }
+
+    void incrementTableVersion(String table){
+        tableVersion(table).incrementAndGet();
+    }
+
+    // unquoted table names are case insensitive
+    private AtomicLong tableVersion(String table){
+        return tableVersions.computeIfAbsent(table.toUpperCase(Locale.ROOT), name -> new AtomicLong());
+    }
+
+    int executeUpdate(String sql, Object[] parameters){
+        return executeUpdate(sql, parameters, parameters.length);
+    }
+
+    // binds the first parameterCount parameters, so one array can serve statements with fewer placeholders
+    int executeUpdate(String sql, Object[] parameters, int parameterCount){
+        ConnectionPool pool = getRequiredPool();
+        ConnectionPool.PooledConnection pooled = borrow(pool, sql);
+        PreparedStatement statement = null;
+        try {
+            statement = pooled.prepareStatement(sql);
+            bindParameters(statement, parameters, parameterCount);
+            int count = statement.executeUpdate();
+            pooled.releaseStatement(sql, statement);
+            return count;
+        } catch (SQLException e) {
+            handleFailure(pooled, sql, statement);
+            throw new IllegalStateException("Error executing '" + sql + "'", e);
+        } finally {
+            pool.release(pooled);
+        }
+    }
+
+    <T> List<T> executeQuery(String sql, Object[] parameters, ResultMapper<T> mapper){
+        ConnectionPool pool = getRequiredPool();
+        ConnectionPool.PooledConnection pooled = borrow(pool, sql);
+        PreparedStatement statement = null;
+        try {
+            statement = pooled.prepareStatement(sql);
+            bindParameters(statement, parameters, parameters.length);
+
+            List<T> result = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                RowMapper<T> rowMapper = mapper.prepare(sql, resultSet);
+                while (resultSet.next()) {
+                    result.add(rowMapper.map(resultSet));
+                }
+            }
+            pooled.releaseStatement(sql, statement);
+
+            return result;
+        } catch (SQLException e) {
+            handleFailure(pooled, sql, statement);
+            throw new IllegalStateException("Error executing '" + sql + "'", e);
+        } catch (Exception e) {
+            handleFailure(pooled, sql, statement);
+            throw new IllegalStateException("Error mapping result of '" + sql + "'", e);
+        } finally {
+            pool.release(pooled);
+        }
+    }
+
+    // Runs the queries at most queryParallelism at a time, each on its own connection, and returns their
+    // results in query order. The first failure cancels the queries that haven't started.
+    <T> List<List<T>> executeQueries(List<String> sqls, List<Object[]> parameters, ResultMapper<T> mapper){
+        ThreadPoolExecutor chunkExecutor = getChunkExecutor();
+        List<Future<List<T>>> futures = new ArrayList<>(sqls.size());
+        for (int i = 0; i < sqls.size(); i++) {
+            String sql = sqls.get(i);
+            Object[] queryParameters = parameters.get(i);
+            futures.add(chunkExecutor.submit(() -> executeQuery(sql, queryParameters, mapper)));
+        }
+
+        List<List<T>> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<List<T>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading " + sqls.size() + " queries", e);
+        } catch (ExecutionException e) {
+            cancel(futures);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return results;
+    }
+
+    private static void cancel(List<? extends Future<?>> futures){
+        for (Future<?> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+    // The connection stays borrowed until the stream is closed or read to the end. Rows are fetched fetchSize
+    // at a time from a forward-only cursor; auto-commit is off meanwhile, as some drivers only use a cursor then.
+    <T> Stream<T> stream(String sql, Object[] parameters, ResultMapper<T> mapper){
+        ConnectionPool pool = getRequiredPool();
+        ConnectionPool.PooledConnection pooled = borrow(pool, sql);
+        Connection connection = pooled.getConnection();
+        PreparedStatement statement = null;
+        boolean autoCommit = true;
+        try {
+            autoCommit = connection.getAutoCommit();
+            if (autoCommit)
+                connection.setAutoCommit(false);
+
+            statement = pooled.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            bindParameters(statement, parameters, parameters.length);
+            ResultSet resultSet = statement.executeQuery();
+
+            Cursor<T> cursor = new Cursor<>(pool, pooled, sql, statement, resultSet, autoCommit, mapper.prepare(sql, resultSet));
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (SQLException | RuntimeException e) {
+            handleFailure(pooled, sql, statement);
+            if (autoCommit)
+                restoreAutoCommit(pooled);
+            pool.release(pooled);
+            throw new IllegalStateException("Error executing '" + sql + "'", e);
+        }
+    }
+
+    private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final ConnectionPool pool;
+        private final ConnectionPool.PooledConnection pooled;
+        private final String sql;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final boolean autoCommit;
+        private final RowMapper<T> rowMapper;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Cursor(ConnectionPool pool, ConnectionPool.PooledConnection pooled, String sql, PreparedStatement statement,
+                       ResultSet resultSet, boolean autoCommit, RowMapper<T> rowMapper){
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.pool = pool;
+            this.pooled = pooled;
+            this.sql = sql;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.autoCommit = autoCommit;
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action){
+            if (closed.get())
+                return false;
+
+            T row;
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return false;
+                }
+                row = rowMapper.map(resultSet);
+            } catch (Exception e) {
+                handleFailure(pooled, sql, statement);
+                close();
+                throw new IllegalStateException("Error reading result of '" + sql + "'", e);
+            }
+
+            action.accept(row);
+            return true;
+        }
+
+        void close(){
+            if (!closed.compareAndSet(false, true))
+                return;
+
+            try {
+                resultSet.close();
+                pooled.releaseStatement(sql, statement);
+                // ends the read transaction the cursor was opened in
+                Connection connection = pooled.getConnection();
+                connection.commit();
+                if (autoCommit)
+                    connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                pooled.markBroken();
+            } finally {
+                pool.release(pooled);
+            }
+        }
+    }
+
+    private static void restoreAutoCommit(ConnectionPool.PooledConnection pooled){
+        try {
+            pooled.getConnection().setAutoCommit(true);
+        } catch (SQLException e) {
+            pooled.markBroken();
+        }
+    }
+
+    // runs the callback on one connection with auto-commit off, commits when it returns and rolls back when it throws
+    <T> T executeInTransaction(ConnectionCallback<T> callback){
+        ConnectionPool pool = getRequiredPool();
+        ConnectionPool.PooledConnection pooled = borrow(pool, "transaction");
+        Connection connection = pooled.getConnection();
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                T result = callback.execute(pooled);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                rollback(connection, e);
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            handleFailure(pooled, null, null);
+            throw new IllegalStateException("Error executing transaction", e);
+        } finally {
+            pool.release(pooled);
+        }
+    }
+
+    private static void rollback(Connection connection, Exception cause){
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    // an update on the connection of a running transaction; binds the first parameterCount values
+    static int executeUpdate(ConnectionPool.PooledConnection pooled, String sql, Object[] parameters, int parameterCount){
+        PreparedStatement statement = null;
+        try {
+            statement = pooled.prepareStatement(sql);
+            bindParameters(statement, parameters, parameterCount);
+            int count = statement.executeUpdate();
+            pooled.releaseStatement(sql, statement);
+
+            return count;
+        } catch (SQLException e) {
+            if (statement != null)
+                pooled.evictStatement(sql, statement);
+            throw new IllegalStateException("Error executing '" + sql + "'", e);
+        }
+    }
+
+    // one round trip for all rows; each row binds its first parameterCount values
+    static int[] executeBatch(ConnectionPool.PooledConnection pooled, String sql, List<Object[]> rows, int parameterCount){
+        PreparedStatement statement = null;
+        try {
+            statement = pooled.prepareStatement(sql);
+            for (Object[] row : rows) {
+                bindParameters(statement, row, parameterCount);
+                statement.addBatch();
+            }
+            int[] counts = statement.executeBatch();
+            pooled.releaseStatement(sql, statement);
+
+            return counts;
+        } catch (SQLException e) {
+            if (statement != null)
+                pooled.evictStatement(sql, statement);
+            throw new IllegalStateException("Error executing batch of " + rows.size() + " '" + sql + "'", e);
+        }
+    }
+
+    // typed setters, so numbers and dates reach the driver as such instead of as their toString()
+    static void bindParameters(PreparedStatement statement, Object[] parameters, int parameterCount) throws SQLException {
+        for (int i = 0; i < parameterCount; i++) {
+            bindParameter(statement, i + 1, parameters[i]);
+        }
+    }
+
+    private static void bindParameter(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null)
+            statement.setNull(index, Types.NULL);
+        else if (value instanceof String)
+            statement.setString(index, (String) value);
+        else if (value instanceof Integer)
+            statement.setInt(index, (Integer) value);
+        else if (value instanceof Long)
+            statement.setLong(index, (Long) value);
+        else if (value instanceof Double)
+            statement.setDouble(index, (Double) value);
+        else if (value instanceof Float)
+            statement.setFloat(index, (Float) value);
+        else if (value instanceof Short)
+            statement.setShort(index, (Short) value);
+        else if (value instanceof Byte)
+            statement.setByte(index, (Byte) value);
+        else if (value instanceof Boolean)
+            statement.setBoolean(index, (Boolean) value);
+        else if (value instanceof BigDecimal)
+            statement.setBigDecimal(index, (BigDecimal) value);
+        else if (value instanceof java.sql.Date)
+            statement.setDate(index, (java.sql.Date) value);
+        else if (value instanceof Time)
+            statement.setTime(index, (Time) value);
+        else if (value instanceof Timestamp)
+            statement.setTimestamp(index, (Timestamp) value);
+        else if (value instanceof Date)
+            // java.util.Date carries the time of day, a TIMESTAMP keeps it and compares with DATE columns
+            statement.setTimestamp(index, new Timestamp(((Date) value).getTime()));
+        else
+            statement.setObject(index, value);
+    }
+
+    private ConnectionPool getRequiredPool(){
+        ConnectionPool pool = this.connectionPool;
+        if (pool == null)
+            throw new IllegalStateException("No DataSource bean is configured");
+
+        return pool;
+    }
+
+    private static ConnectionPool.PooledConnection borrow(ConnectionPool pool, String sql){
+        try {
+            return pool.borrow();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error getting connection for '" + sql + "'", e);
+        }
+    }
+
+    // a failed statement is not reused; a dropped connection is not returned to the pool
+    private static void handleFailure(ConnectionPool.PooledConnection pooled, String sql, PreparedStatement statement){
+        if (statement != null)
+            pooled.evictStatement(sql, statement);
+
+        try {
+            if (!pooled.getConnection().isValid(1))
+                pooled.markBroken();
+        } catch (SQLException e) {
+            pooled.markBroken();
+        }
+    }
+}
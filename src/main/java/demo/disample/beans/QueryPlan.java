@@ -0,0 +1,111 @@
+package demo.disample.beans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Parsed findBy method: the conditions in method name order and the query with a placeholder per parameter,
+// so every call of the method runs the same statement and only binds its arguments.
+public final class QueryPlan {
+
+    // bound to a collection, the placeholder is expanded for its values when the query runs
+    static final String IN = "IN";
+
+    public static final class Condition {
+        private final String fieldName;
+        private final String columnName;
+        private final String operator;
+        private final boolean negative;
+        private final String logicalOperator;
+
+        Condition(String fieldName, String columnName, String operator, boolean negative, String logicalOperator){
+            this.fieldName = fieldName;
+            this.columnName = columnName;
+            this.operator = operator;
+            this.negative = negative;
+            this.logicalOperator = logicalOperator;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public boolean isNegative() {
+            return negative;
+        }
+
+        // AND or OR joining the condition to the previous one, null for the first condition
+        public String getLogicalOperator() {
+            return logicalOperator;
+        }
+    }
+
+    private final String methodName;
+    private final String tableName;
+    private final List<Condition> conditions;
+    private final String conditionsSql;
+    private final String sql;
+
+    QueryPlan(String methodName, String tableName, List<Condition> conditions){
+        this.methodName = methodName;
+        this.tableName = tableName;
+        this.conditions = Collections.unmodifiableList(new ArrayList<>(conditions));
+
+        // " NOT COLUMN >= ? AND COLUMN = ? OR COLUMN IN (?)"
+        StringBuilder sb = new StringBuilder();
+        for (Condition condition : conditions) {
+            if (condition.logicalOperator != null)
+                sb.append(' ').append(condition.logicalOperator);
+            if (condition.negative)
+                sb.append(" NOT");
+            sb.append(' ').append(condition.columnName).append(' ').append(condition.operator)
+                    .append(IN.equals(condition.operator) ? " (?)" : " ?");
+        }
+        this.conditionsSql = sb.toString();
+        this.sql = "SELECT * FROM " + tableName + " WHERE" + conditionsSql;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    public int getParameterCount() {
+        return conditions.size();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    String getConditionsSql() {
+        return conditionsSql;
+    }
+
+    void checkParameters(Object[] values){
+        if (values == null)
+            throw new NullPointerException("Values is null");
+        if (values.length < getParameterCount())
+            throw new IllegalArgumentException("Error parsing method name - insufficient parameter value for field " + conditions.get(values.length).fieldName);
+    }
+
+    @Override
+    public String toString(){
+        return methodName + ": " + sql;
+    }
+}
@@ -0,0 +1,161 @@
+package demo.disample.beans;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Results of one derived query by argument values. Each result remembers the version of the table it was
+// read at and is only served while the table is still at that version, so a write to the table drops every
+// result without visiting them. The budget is counted in rows, an empty result weighs one.
+final class QueryResultCache {
+
+    private static final class Entry {
+        private final long tableVersion;
+        private final long expiresAtNanos;
+        private final Object[][] rows;
+
+        private Entry(long tableVersion, long expiresAtNanos, Object[][] rows){
+            this.tableVersion = tableVersion;
+            this.expiresAtNanos = expiresAtNanos;
+            this.rows = rows;
+        }
+
+        int weight(){
+            return Math.max(1, rows.length);
+        }
+    }
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_ROWS = 256;
+
+    private static final class Segment extends ReentrantLock {
+        private final int maxRows;
+        private final LongAdder evictionCount;
+        // access ordered, the least recently used result is dropped first when the budget is exceeded
+        private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private int weight;
+
+        private Segment(int maxRows, LongAdder evictionCount){
+            this.maxRows = maxRows;
+            this.evictionCount = evictionCount;
+        }
+
+        Entry get(List<Object> arguments, long tableVersion){
+            lock();
+            try {
+                Entry entry = entries.get(arguments);
+                if (entry != null && (entry.tableVersion != tableVersion || isExpired(entry))) {
+                    remove(arguments, entry);
+                    entry = null;
+                }
+                return entry;
+            } finally {
+                unlock();
+            }
+        }
+
+        void put(List<Object> arguments, Entry entry){
+            // a result over the whole budget would only push out everything else
+            if (entry.weight() > maxRows)
+                return;
+
+            lock();
+            try {
+                Entry previous = entries.put(arguments, entry);
+                if (previous != null)
+                    weight -= previous.weight();
+                weight += entry.weight();
+
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (weight > maxRows) {
+                    weight -= iterator.next().weight();
+                    iterator.remove();
+                    evictionCount.increment();
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        private void remove(List<Object> arguments, Entry entry){
+            entries.remove(arguments);
+            weight -= entry.weight();
+        }
+
+        int size(){
+            lock();
+            try {
+                return entries.size();
+            } finally {
+                unlock();
+            }
+        }
+    }
+
+    // striped like EntityCache so lookups of different arguments don't queue on one lock; a small budget
+    // stays in one segment, a large one is split evenly and a result must fit in its segment's share
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long expireAfterWriteNanos;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    QueryResultCache(int maxRows, long expireAfterWriteMillis){
+        if (maxRows < 1)
+            throw new IllegalArgumentException("Query cache size must be positive");
+        if (expireAfterWriteMillis < 0)
+            throw new IllegalArgumentException("Query cache expiration must not be negative");
+
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxRows / MIN_SEGMENT_ROWS)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxRows / segmentCount, evictionCount);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis);
+    }
+
+    private Segment segmentFor(List<Object> arguments){
+        int hash = arguments.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & segmentMask];
+    }
+
+    // null when there is no result read at the current table version
+    Object[][] get(List<Object> arguments, long tableVersion){
+        Entry entry = segmentFor(arguments).get(arguments, tableVersion);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+
+        hitCount.increment();
+        return entry.rows;
+    }
+
+    void put(List<Object> arguments, long tableVersion, Object[][] rows){
+        long expiresAtNanos = 0;
+        if (expireAfterWriteNanos > 0)
+            expiresAtNanos = (System.nanoTime() + expireAfterWriteNanos) | 1;
+
+        segmentFor(arguments).put(arguments, new Entry(tableVersion, expiresAtNanos, rows));
+    }
+
+    private static boolean isExpired(Entry entry){
+        return entry.expiresAtNanos != 0 && System.nanoTime() - entry.expiresAtNanos >= 0;
+    }
+
+    CacheStatistics getStatistics(){
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+
+        return new CacheStatistics(size, hitCount.sum(), missCount.sum(), evictionCount.sum());
+    }
+}
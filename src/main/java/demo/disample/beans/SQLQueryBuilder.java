@@ -2,244 +2,300 @@ package demo.disample.beans;
 
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 public class SQLQueryBuilder {
 
-    final String AND = "And";
-    final String OR  = "Or";
-    final String NOT = "Not";
+    static final String AND = "And";
+    static final String OR  = "Or";
+    static final String NOT = "Not";
 
-    final String GreaterOrEqual = "GreaterOrEqual";
-    final String LessOrEqual    = "LessOrEqual";
-    final String Greater        = "Greater";
-    final String Less           = "Less";
-    final String NotEqual       = "NotEqual";
-    final String IsEqual        = "IsEqual";
+    static final String GreaterOrEqual = "GreaterOrEqual";
+    static final String LessOrEqual    = "LessOrEqual";
+    static final String Greater        = "Greater";
+    static final String Less           = "Less";
+    static final String NotEqual       = "NotEqual";
+    static final String IsEqual        = "IsEqual";
+    static final String In             = "In";
 
-    private final List<String> logicalOperators = new ArrayList<>();
-    private final Map<String, String> logicalOperatorsMap = new HashMap<>();
-    private final List<String> conditionalOperators = new ArrayList<>();
-    private final Map<String, String> conditionalOperatorsMap = new HashMap<>();
+    private static final String METHOD_MAGIC_WORD = "findBy";
+    // same conditions, the result is streamed from a cursor instead of collected into a list
+    private static final String STREAM_MAGIC_WORD = "streamBy";
 
-    private enum ClauseType {
-        FIELD,
-        CONDITION,
-        LOGICAL
-    }
+    // tokens of the entity the builder was created for, null when every call passes its own fields
+    private final TokenTrie tokens;
 
-    private class Condition{
-        String field;
-        String operator;
-        boolean negative;
+    public SQLQueryBuilder(){
+        this.tokens = null;
     }
 
-    SQLQueryBuilder(){
-        logicalOperators.add(AND);
-        logicalOperatorsMap.put(AND, "AND");
-
-        logicalOperators.add(OR);
-        logicalOperatorsMap.put(OR, "OR");
+    // builds the tokenizer of the entity once, for all of its findBy methods
+    public SQLQueryBuilder(Map<String, String> fieldsToColumns){
+        if (fieldsToColumns == null)
+            throw new NullPointerException("Fields is null");
 
-        logicalOperatorsMap.put(NOT, "NOT");
+        this.tokens = createTokens(fieldsToColumns);
+    }
 
-        // order is important!!
-        conditionalOperators.add(GreaterOrEqual);
-        conditionalOperatorsMap.put(GreaterOrEqual, ">=");
+    public static boolean isQueryMethod(String methodName){
+        return methodName.startsWith(METHOD_MAGIC_WORD) || isStreamMethod(methodName);
+    }
 
-        conditionalOperators.add(LessOrEqual);
-        conditionalOperatorsMap.put(LessOrEqual, "<=");
+    public static boolean isStreamMethod(String methodName){
+        return methodName.startsWith(STREAM_MAGIC_WORD);
+    }
 
-        conditionalOperators.add(Greater);
-        conditionalOperatorsMap.put(Greater, ">");
+    private static TokenTrie createTokens(Map<String, String> fieldsToColumns){
+        TokenTrie tokens = new TokenTrie();
+        tokens.add(AND, TokenTrie.LOGICAL, "AND");
+        tokens.add(OR, TokenTrie.LOGICAL, "OR");
+        tokens.add(NOT, TokenTrie.NOT, "NOT");
+
+        tokens.add(GreaterOrEqual, TokenTrie.CONDITION, ">=");
+        tokens.add(LessOrEqual, TokenTrie.CONDITION, "<=");
+        tokens.add(Greater, TokenTrie.CONDITION, ">");
+        tokens.add(Less, TokenTrie.CONDITION, "<");
+        tokens.add(NotEqual, TokenTrie.CONDITION, "<>");
+        tokens.add(IsEqual, TokenTrie.CONDITION, "=");
+        tokens.add(In, TokenTrie.CONDITION, QueryPlan.IN);
+
+        for (Map.Entry<String, String> entry : fieldsToColumns.entrySet()) {
+            tokens.add(Utils.capitalizeWord(entry.getKey()), TokenTrie.FIELD, entry.getValue());
+        }
 
-        conditionalOperators.add(Less);
-        conditionalOperatorsMap.put(Less, "<");
+        return tokens;
+    }
 
-        conditionalOperators.add(NotEqual);
-        conditionalOperatorsMap.put(NotEqual, "<>");
+    // Per call statements are rendered into a buffer kept by the thread instead of a new builder and format string.
+    // A buffer that grew past the limit for one huge statement is dropped rather than kept.
+    private static final int BUFFER_CAPACITY = 256;
+    private static final int MAX_RETAINED_BUFFER_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(BUFFER_CAPACITY));
+
+    static StringBuilder buffer(){
+        StringBuilder buffer = BUFFER.get();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_CAPACITY) {
+            buffer = new StringBuilder(BUFFER_CAPACITY);
+            BUFFER.set(buffer);
+        }
+        buffer.setLength(0);
 
-        conditionalOperators.add(IsEqual);
-        conditionalOperatorsMap.put(IsEqual, "=");
+        return buffer;
     }
 
-    public static String buildUpdateQuery(String tableName, Map<String, String> fields){
+    private static void checkColumns(String tableName, Collection<String> columns){
         if (tableName == null)
             throw new NullPointerException("Table name is null");
 
-        if (fields == null)
+        if (columns == null)
             throw new NullPointerException("Field set is null");
 
-        if (fields.size() == 0)
+        if (columns.size() == 0)
             throw new IllegalArgumentException("Field set is empty");
+    }
+
+    public static String buildUpdateQuery(String tableName, Collection<String> columns){
+        checkColumns(tableName, columns);
+
+        StringBuilder sb = buffer().append("UPDATE ").append(tableName).append(" SET ");
+        boolean first = true;
+        for (String column : columns) {
+            if (!first){
+                sb.append(", ");
+            }
+            first = false;
+
+            sb.append(column).append(" = ?");
+        }
+
+        return sb.toString();
+    }
+
+    public static String buildInsertQuery(String tableName, Collection<String> columns){
+        checkColumns(tableName, columns);
 
-        StringBuilder values = new StringBuilder();
+        StringBuilder sb = buffer().append("INSERT INTO ").append(tableName).append(" (");
         boolean first = true;
-        for (Map.Entry entry: fields.entrySet()) {
+        for (String column : columns) {
             if (!first){
-                values.append(", ");
+                sb.append(", ");
             }
             first = false;
 
-            values.append(String.format("%s = '%s'", entry.getKey().toString(), entry.getValue().toString()));
+            sb.append(column);
+        }
+        sb.append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0){
+                sb.append(", ");
+            }
+            sb.append('?');
         }
 
-        return  String.format("UPDATE %s SET %s", tableName, values) ;
+        return sb.append(')').toString();
     }
 
-    public static String buildInsertQuery(String tableName, Map<String, String> fields){
+    public static String buildSelectQuery(String tableName){
         if (tableName == null)
             throw new NullPointerException("Table name is null");
 
-        if (fields == null)
-            throw new NullPointerException("Field set is null");
+        return buffer().append("SELECT * FROM ").append(tableName).toString();
+    }
 
-        if (fields.size() == 0)
-            throw new IllegalArgumentException("Field set is empty");
+    public static String buildDeleteQuery(String tableName){
+        if (tableName == null)
+            throw new NullPointerException("Table name is null");
 
-        StringBuilder columns = new StringBuilder();
-        StringBuilder values = new StringBuilder();
-        boolean first = true;
-        for (Map.Entry entry: fields.entrySet()) {
-            if (!first){
-                columns.append(", ");
-                values.append(", ");
+        return buffer().append("DELETE FROM ").append(tableName).toString();
+    }
+
+    public static String buildIdFilter(String idColumnName){
+        if (idColumnName == null)
+            throw new NullPointerException("Id column name is null");
+
+        return buffer().append(" WHERE ").append(idColumnName).append(" = ?").toString();
+    }
+
+    public static String buildInFilter(String columnName, int count){
+        if (columnName == null)
+            throw new NullPointerException("Column name is null");
+        if (count < 1)
+            throw new IllegalArgumentException("IN filter needs at least one value");
+
+        StringBuilder sb = buffer().append(" WHERE ").append(columnName).append(" IN (?");
+        for (int i = 1; i < count; i++) {
+            sb.append(", ?");
+        }
+
+        return sb.append(')').toString();
+    }
+
+    // Rewrites each "COLUMN IN (?)" for the number of values bound to it; an empty list matches nothing.
+    // sizes has an entry per placeholder, -1 for the placeholders that are not IN lists.
+    static String expandInLists(String sql, int[] sizes){
+        StringBuilder sb = buffer();
+        int start = 0;
+        int parameter = 0;
+        for (int i = sql.indexOf('?'); i >= 0; i = sql.indexOf('?', i + 1), parameter++) {
+            int size = sizes[parameter];
+            if (size < 0)
+                continue;
+            if (!sql.startsWith(QueryPlan.IN + " (?)", i - 4))
+                throw new IllegalArgumentException("Parameter " + (parameter + 1) + " of '" + sql + "' is a collection, but its condition is not In");
+
+            if (size == 0) {
+                // "NOT 1 = 0" still reads as the negation of the empty IN list
+                int column = sql.lastIndexOf(' ', i - 6) + 1;
+                sb.append(sql, start, column).append("1 = 0");
+                start = i + 2;
+                continue;
             }
-            first = false;
 
-            columns.append(entry.getKey());
-            values.append("'").append(entry.getValue()).append("'");
+            sb.append(sql, start, i).append('?');
+            for (int k = 1; k < size; k++) {
+                sb.append(", ?");
+            }
+            start = i + 1;
+        }
+
+        return sb.append(sql, start, sql.length()).toString();
+    }
+
+    // whether the IN list of the placeholder is negated, "NOT COLUMN IN (?)"
+    static boolean isNegatedInList(String sql, int parameter){
+        int i = sql.indexOf('?');
+        for (int k = 0; k < parameter; k++) {
+            i = sql.indexOf('?', i + 1);
         }
 
-        return String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, columns.toString(), values.toString());
+        int column = sql.lastIndexOf(' ', i - 6) + 1;
+        return sql.startsWith("NOT ", column - 4);
     }
 
     public String parseQuery(String methodName, Map<String, String> fieldsToColumns, Object[] values) throws ParseException {
-        if (methodName == null)
-            throw new NullPointerException("Method name is null");
-        if (fieldsToColumns == null)
-            throw new NullPointerException("Fields is null");
         if (values == null)
             throw new NullPointerException("Values is null");
 
-        String methodMagicWord = "findBy";
-        if (!methodName.startsWith(methodMagicWord)) {
-            throw new IllegalArgumentException(String.format("Error in '%s' method name. Method name must start with '%s'", methodName, methodMagicWord));
-        }
+        QueryPlan plan = compileQuery(methodName, null, fieldsToColumns);
+        plan.checkParameters(values);
 
-        Map<String, String> fields = new HashMap<>();
-        for (Map.Entry entry: fieldsToColumns.entrySet()) {
-            fields.put(Utils.capitalizeWord(entry.getKey().toString()), entry.getValue().toString());
-        }
+        return plan.getConditionsSql();
+    }
 
-        int valueIndex  = -1;
-        int currentPosition = methodMagicWord.length();
-        int methodLength = methodName.length();
+    public QueryPlan compileQuery(String methodName, String tableName, Map<String, String> fieldsToColumns) throws ParseException {
+        if (methodName == null)
+            throw new NullPointerException("Method name is null");
+        if (fieldsToColumns == null)
+            throw new NullPointerException("Fields is null");
+
+        return compileQuery(methodName, tableName, createTokens(fieldsToColumns));
+    }
 
-        StringBuilder queryBuilder = new StringBuilder();
+    public QueryPlan compileQuery(String methodName, String tableName) throws ParseException {
+        if (tokens == null)
+            throw new IllegalStateException("Query builder was created without entity fields");
 
-        ClauseType expectedType = ClauseType.FIELD;
-        Condition currentCondition = null;
-        while (currentPosition < methodLength){
-            if (expectedType == ClauseType.FIELD){
-                currentCondition = new Condition();
-                String currentFieldName = null;
-                for (Map.Entry entry: fields.entrySet()) {
-                    String fieldName = entry.getKey().toString();
-                    if (methodName.startsWith (fieldName, currentPosition)){
-                        currentFieldName = fieldName;
-                        currentPosition += fieldName.length();
-                        break;
-                    }
-                }
-
-                if (currentFieldName == null){
-                    throw newParseException("Error parsing method name ", methodName, " - field name expected", currentPosition);
-                }
-
-                currentCondition.field = currentFieldName;
-
-                expectedType = ClauseType.CONDITION;
-
-            } else if (expectedType == ClauseType.CONDITION){
-                if (methodName.startsWith(NOT, currentPosition)
-                        && (!methodName.startsWith(NotEqual, currentPosition))){
-                    currentCondition.negative = true;
-                    currentPosition += NOT.length();
-                }
-
-                String currentConditionOperator = null;
-                for (String condition: conditionalOperators) {
-                    if (methodName.startsWith (condition, currentPosition)){
-                        currentConditionOperator = condition;
-                        currentPosition += currentConditionOperator.length();
-                        break;
-                    }
-                }
-
-                currentCondition.operator = currentConditionOperator;
-
-                expectedType = ClauseType.LOGICAL;
-
-            } else if (expectedType == ClauseType.LOGICAL){
-                valueIndex = addCondition(queryBuilder, currentCondition, fields, values, valueIndex);
-                currentCondition = null;
-
-                String currentLogicalOperator = null;
-                for (String logicalOperator: logicalOperators) {
-                    if (methodName.startsWith(logicalOperator, currentPosition)){
-                        currentLogicalOperator = logicalOperator;
-                        currentPosition += currentLogicalOperator.length();
-                        break;
-                    }
-                }
-
-                if (currentLogicalOperator == null){
-                    throw newParseException("Error parsing method name ", methodName, " - logical operator expected", currentPosition);
-                }
-
-                queryBuilder.append(" ").append(logicalOperatorsMap.get(currentLogicalOperator));
-
-                expectedType = ClauseType.FIELD;
+        return compileQuery(methodName, tableName, tokens);
+    }
 
-            }
-        }
+    // Field [Not] [Operator] followed by And/Or and the next condition; every word is the longest
+    // token of the kinds allowed at its position, so the result does not depend on map or list order.
+    private QueryPlan compileQuery(String methodName, String tableName, TokenTrie tokens) throws ParseException {
+        if (methodName == null)
+            throw new NullPointerException("Method name is null");
 
-        if (currentCondition != null){
-            addCondition(queryBuilder, currentCondition, fields, values, valueIndex);
+        if (!isQueryMethod(methodName)) {
+            throw new IllegalArgumentException(String.format("Error in '%s' method name. Method name must start with '%s' or '%s'", methodName, METHOD_MAGIC_WORD, STREAM_MAGIC_WORD));
         }
 
-        if (queryBuilder.length() == 0){
-            throw new IllegalArgumentException(String.format("Error in '%s' method name. Method name don't contain conditions", methodName));
-        }
-        if (expectedType == ClauseType.FIELD){
-            throw newParseException("Error parsing method name ", methodName, " - wrong last clause type", currentPosition);
-        }
+        int currentPosition = isStreamMethod(methodName) ? STREAM_MAGIC_WORD.length() : METHOD_MAGIC_WORD.length();
+        int methodLength = methodName.length();
 
-        return queryBuilder.toString();
-    }
+        List<QueryPlan.Condition> conditions = new ArrayList<>();
+        String logicalOperator = null;
+        while (currentPosition < methodLength){
+            TokenTrie.Token field = tokens.match(methodName, currentPosition, TokenTrie.FIELD);
+            if (field == null){
+                throw newParseException("Error parsing method name ", methodName, " - field name expected", currentPosition);
+            }
+            currentPosition += field.length();
+
+            boolean negative = false;
+            TokenTrie.Token condition = tokens.match(methodName, currentPosition, TokenTrie.NOT | TokenTrie.CONDITION);
+            if (condition != null && condition.getKind() == TokenTrie.NOT){
+                negative = true;
+                currentPosition += condition.length();
+                condition = tokens.match(methodName, currentPosition, TokenTrie.CONDITION);
+            }
+            if (condition != null){
+                currentPosition += condition.length();
+            }
 
-    private int addCondition(StringBuilder queryBuilder, Condition currentCondition, Map<String, String> fields, Object[] values, int valueIndex) {
-        valueIndex++;
-        if (valueIndex >= values.length)
-            throw new IllegalArgumentException("Error parsing method name - insufficient parameter value for field " + currentCondition.field);
+            conditions.add(new QueryPlan.Condition(field.getText(), field.getValue(),
+                    condition != null ? condition.getValue() : "=", negative, logicalOperator));
 
-        Object value = values[valueIndex];
+            if (currentPosition == methodLength)
+                break;
 
-        String conditionalOperator = currentCondition.operator;
-        if (conditionalOperator == null)
-            conditionalOperator = IsEqual;
+            TokenTrie.Token logical = tokens.match(methodName, currentPosition, TokenTrie.LOGICAL);
+            if (logical == null){
+                throw newParseException("Error parsing method name ", methodName, " - logical operator expected", currentPosition);
+            }
+            currentPosition += logical.length();
+            logicalOperator = logical.getValue();
 
-        if (currentCondition.negative){
-            queryBuilder.append(" ").append(logicalOperatorsMap.get(NOT));
+            if (currentPosition == methodLength){
+                throw newParseException("Error parsing method name ", methodName, " - wrong last clause type", currentPosition);
+            }
         }
-        queryBuilder.append(String.format(" %s %s", fields.get(currentCondition.field), conditionalOperatorsMap.get(conditionalOperator)));
 
-        queryBuilder.append(String.format(" '%s'", value.toString()));
+        if (conditions.isEmpty()){
+            throw new IllegalArgumentException(String.format("Error in '%s' method name. Method name don't contain conditions", methodName));
+        }
 
-        return valueIndex;
+        return new QueryPlan(methodName, tableName, conditions);
     }
 
     private ParseException newParseException(String head, String mid, String tail, int pos){
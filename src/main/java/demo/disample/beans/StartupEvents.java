@@ -0,0 +1,71 @@
+package demo.disample.beans;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight recorder events of the context start, recorded with -XX:StartFlightRecording
+final class StartupEvents {
+
+    @Name("demo.disample.StartupPhase")
+    @Label("Startup Phase")
+    @Category("Dependency Injection")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("demo.disample.BeanStartup")
+    @Label("Bean Startup")
+    @Category("Dependency Injection")
+    @StackTrace(false)
+    static final class BeanEvent extends Event {
+        @Label("Bean")
+        String bean;
+
+        @Label("Step")
+        String step;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    private StartupEvents(){
+    }
+
+    // creating an event initializes the recorder, which costs more than the whole start when nothing records
+    static boolean isRecording(){
+        return FlightRecorder.isInitialized();
+    }
+
+    static void commitPhase(String phase, long duration){
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled())
+            return;
+
+        event.phase = phase;
+        event.elapsed = duration;
+        event.commit();
+    }
+
+    static void commitBean(String bean, String step, long duration){
+        BeanEvent event = new BeanEvent();
+        if (!event.isEnabled())
+            return;
+
+        event.bean = bean;
+        event.step = step;
+        event.elapsed = duration;
+        event.commit();
+    }
+}
@@ -0,0 +1,83 @@
+package demo.disample.beans;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects the timings of one context start. Beans are instantiated and wired on pool threads,
+// so every counter is a LongAdder; lazy beans keep adding to it when they are created later.
+final class StartupProfiler {
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private final Map<StartupReport.Phase, LongAdder> phases = new EnumMap<>(StartupReport.Phase.class);
+    private final Map<String, LongAdder[]> beans = new ConcurrentHashMap<>();
+
+    StartupProfiler(){
+        for (StartupReport.Phase phase : StartupReport.Phase.values()) {
+            phases.put(phase, new LongAdder());
+        }
+    }
+
+    static long start(){
+        return System.nanoTime();
+    }
+
+    void recordPhase(StartupReport.Phase phase, long startNanos){
+        long duration = System.nanoTime() - startNanos;
+        phases.get(phase).add(duration);
+
+        if (JFR_AVAILABLE && StartupEvents.isRecording())
+            StartupEvents.commitPhase(phase.name(), duration);
+    }
+
+    void recordInstantiation(String beanName, long startNanos){
+        recordBean(beanName, 0, "instantiation", startNanos);
+    }
+
+    void recordWiring(String beanName, long startNanos){
+        recordBean(beanName, 1, "wiring", startNanos);
+    }
+
+    private void recordBean(String beanName, int index, String step, long startNanos){
+        long duration = System.nanoTime() - startNanos;
+        beans.computeIfAbsent(beanName, key -> new LongAdder[] {new LongAdder(), new LongAdder()})[index].add(duration);
+
+        if (JFR_AVAILABLE && StartupEvents.isRecording())
+            StartupEvents.commitBean(beanName, step, duration);
+    }
+
+    void finish(){
+        endNanos = System.nanoTime();
+    }
+
+    StartupReport getReport(){
+        long end = endNanos;
+        Map<StartupReport.Phase, Long> phaseNanos = new EnumMap<>(StartupReport.Phase.class);
+        for (Map.Entry<StartupReport.Phase, LongAdder> entry : phases.entrySet()) {
+            phaseNanos.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        List<StartupReport.BeanTiming> beanTimings = new ArrayList<>();
+        for (Map.Entry<String, LongAdder[]> entry : beans.entrySet()) {
+            LongAdder[] timings = entry.getValue();
+            beanTimings.add(new StartupReport.BeanTiming(entry.getKey(), timings[0].sum(), timings[1].sum()));
+        }
+
+        return new StartupReport((end == 0 ? System.nanoTime() : end) - startNanos, phaseNanos, beanTimings);
+    }
+
+    // jdk.jfr is missing on older Java 8 runtimes; the event classes are only loaded when it is there
+    private static boolean isJfrAvailable(){
+        try {
+            Class.forName("jdk.jfr.Event", false, StartupProfiler.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package demo.disample.beans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Snapshot of where Application.run spent its time. Phases that run in parallel
+// (repository metadata and proxy creation) report the time summed over all threads.
+public final class StartupReport {
+
+    public enum Phase {
+        SCAN,
+        CLASS_LOAD,
+        INSTANTIATION,
+        REPOSITORY_METADATA,
+        PROXY_CREATION,
+        WIRING
+    }
+
+    public static final class BeanTiming {
+        private final String beanName;
+        private final long instantiationNanos;
+        private final long wiringNanos;
+
+        BeanTiming(String beanName, long instantiationNanos, long wiringNanos){
+            this.beanName = beanName;
+            this.instantiationNanos = instantiationNanos;
+            this.wiringNanos = wiringNanos;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public long getInstantiationNanos() {
+            return instantiationNanos;
+        }
+
+        public long getWiringNanos() {
+            return wiringNanos;
+        }
+
+        public long getTotalNanos() {
+            return instantiationNanos + wiringNanos;
+        }
+
+        @Override
+        public String toString(){
+            return beanName + " " + toMillis(getTotalNanos()) + "ms (instantiation " + toMillis(instantiationNanos)
+                    + "ms, wiring " + toMillis(wiringNanos) + "ms)";
+        }
+    }
+
+    private final long totalNanos;
+    private final Map<Phase, Long> phaseNanos;
+    private final List<BeanTiming> beanTimings;
+
+    StartupReport(long totalNanos, Map<Phase, Long> phaseNanos, List<BeanTiming> beanTimings){
+        this.totalNanos = totalNanos;
+        this.phaseNanos = Collections.unmodifiableMap(new EnumMap<>(phaseNanos));
+
+        List<BeanTiming> sortedTimings = new ArrayList<>(beanTimings);
+        sortedTimings.sort(Comparator.comparingLong(BeanTiming::getTotalNanos).reversed());
+        this.beanTimings = Collections.unmodifiableList(sortedTimings);
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getPhaseNanos(Phase phase){
+        Long nanos = phaseNanos.get(phase);
+        return nanos == null ? 0 : nanos;
+    }
+
+    public Map<Phase, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    // slowest beans first
+    public List<BeanTiming> getBeanTimings() {
+        return beanTimings;
+    }
+
+    public List<BeanTiming> getSlowestBeans(int count){
+        return beanTimings.subList(0, Math.min(count, beanTimings.size()));
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder("Started in ").append(toMillis(totalNanos)).append("ms:");
+        for (Map.Entry<Phase, Long> entry : phaseNanos.entrySet()) {
+            sb.append(' ').append(entry.getKey().name().toLowerCase()).append(' ').append(toMillis(entry.getValue())).append("ms");
+        }
+
+        return sb.toString();
+    }
+
+    // the phases followed by this many of the slowest beans
+    public String toString(int slowestBeanCount){
+        return this + ", slowest beans: " + getSlowestBeans(slowestBeanCount);
+    }
+
+    private static String toMillis(long nanos){
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
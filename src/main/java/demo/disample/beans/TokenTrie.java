@@ -0,0 +1,133 @@
+package demo.disample.beans;
+
+import java.util.Arrays;
+
+// Longest-match trie over the words of a findBy method name: entity fields, comparison operators,
+// And/Or and Not. A match walks one node per character and allocates nothing.
+final class TokenTrie {
+
+    static final int FIELD = 1;
+    static final int CONDITION = 2;
+    static final int LOGICAL = 4;
+    static final int NOT = 8;
+
+    static final class Token {
+        private final String text;
+        private final int kind;
+        private final String value;
+
+        private Token(String text, int kind, String value){
+            this.text = text;
+            this.kind = kind;
+            this.value = value;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        int getKind() {
+            return kind;
+        }
+
+        // column name of a field, SQL of an operator
+        String getValue() {
+            return value;
+        }
+
+        int length() {
+            return text.length();
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Token[] NO_TOKENS = new Token[0];
+
+        // labels are kept sorted for the binary search
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        // one word may be a token of several kinds, e.g. a field called "less"
+        private Token[] tokens = NO_TOKENS;
+
+        Node child(char label){
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node addChild(char label){
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0)
+                return children[index];
+
+            index = -index - 1;
+            Node child = new Node();
+
+            char[] newLabels = new char[labels.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            newLabels[index] = label;
+
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            newChildren[index] = child;
+
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        Token token(int kinds){
+            for (Token token : tokens) {
+                if ((token.kind & kinds) != 0)
+                    return token;
+            }
+
+            return null;
+        }
+
+        void addToken(Token token){
+            for (int i = 0; i < tokens.length; i++) {
+                if (tokens[i].kind == token.kind) {
+                    tokens[i] = token;
+                    return;
+                }
+            }
+
+            tokens = Arrays.copyOf(tokens, tokens.length + 1);
+            tokens[tokens.length - 1] = token;
+        }
+    }
+
+    private final Node root = new Node();
+
+    void add(String text, int kind, String value){
+        if (text.isEmpty())
+            throw new IllegalArgumentException("Token text is empty");
+
+        Node node = root;
+        for (int i = 0; i < text.length(); i++) {
+            node = node.addChild(text.charAt(i));
+        }
+        node.addToken(new Token(text, kind, value));
+    }
+
+    // the longest token of one of the given kinds starting at the position, or null
+    Token match(String source, int position, int kinds){
+        Token longest = null;
+        Node node = root;
+        for (int i = position; i < source.length(); i++) {
+            node = node.child(source.charAt(i));
+            if (node == null)
+                break;
+
+            Token token = node.token(kinds);
+            if (token != null)
+                longest = token;
+        }
+
+        return longest;
+    }
+}
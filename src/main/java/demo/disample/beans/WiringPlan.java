@@ -0,0 +1,365 @@
+package demo.disample.beans;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Resolved context of an earlier start: bean candidates, repository implementations and their entity types,
+// constructors and @Autowired members. It is only used while the class path fingerprint still matches.
+final class WiringPlan {
+    private static final int MAGIC = 0x44495750;
+    private static final int VERSION = 1;
+
+    private static final byte FIELD = 'F';
+    private static final byte METHOD = 'M';
+
+    private static final Map<String, Class> PRIMITIVE_TYPES = new HashMap<>();
+    static {
+        for (Class type : new Class[] {boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class}) {
+            PRIMITIVE_TYPES.put(type.getName(), type);
+        }
+    }
+
+    private static final class BeanWiring {
+        private final String[] constructorParameterTypes;
+        private final byte[] memberKinds;
+        private final String[] memberNames;
+        private final String[] memberTypes;
+
+        private BeanWiring(String[] constructorParameterTypes, byte[] memberKinds, String[] memberNames, String[] memberTypes){
+            this.constructorParameterTypes = constructorParameterTypes;
+            this.memberKinds = memberKinds;
+            this.memberNames = memberNames;
+            this.memberTypes = memberTypes;
+        }
+    }
+
+    private final List<String> classNames;
+    private final Map<String, String> repositoryImplementations;
+    private final Map<String, String[]> repositoryGenericTypes;
+    private final Map<String, BeanWiring> beans;
+
+    private WiringPlan(Builder builder){
+        this.classNames = Collections.unmodifiableList(new ArrayList<>(builder.classNames));
+        this.repositoryImplementations = builder.repositoryImplementations;
+        this.repositoryGenericTypes = builder.repositoryGenericTypes;
+        this.beans = builder.beans;
+    }
+
+    static class Builder{
+        private final List<String> classNames = new ArrayList<>();
+        private final Map<String, String> repositoryImplementations = new TreeMap<>();
+        private final Map<String, String[]> repositoryGenericTypes = new TreeMap<>();
+        private final Map<String, BeanWiring> beans = new TreeMap<>();
+
+        Builder addClassNames(Iterable<String> classNames){
+            for (String className : classNames) {
+                this.classNames.add(className);
+            }
+            return this;
+        }
+
+        Builder addRepository(Class _interface, Class implementation, Class[] genericTypes){
+            repositoryImplementations.put(_interface.getName(), implementation.getName());
+            if (genericTypes != null)
+                repositoryGenericTypes.put(_interface.getName(), toNames(genericTypes));
+            return this;
+        }
+
+        Builder addBean(Class beanClass) throws Exception {
+            InjectionPlan plan = InjectionPlan.of(beanClass);
+            List<InjectionPlan.InjectionPoint> injectionPoints = plan.getInjectionPoints();
+
+            byte[] memberKinds = new byte[injectionPoints.size()];
+            String[] memberNames = new String[injectionPoints.size()];
+            String[] memberTypes = new String[injectionPoints.size()];
+            for (int i = 0; i < memberKinds.length; i++) {
+                InjectionPlan.InjectionPoint injectionPoint = injectionPoints.get(i);
+                memberKinds[i] = injectionPoint.getMember() instanceof Field ? FIELD : METHOD;
+                memberNames[i] = injectionPoint.getName();
+                memberTypes[i] = injectionPoint.getDependencyType().getName();
+            }
+
+            beans.put(beanClass.getName(), new BeanWiring(toNames(plan.getConstructor().getParameterTypes()), memberKinds, memberNames, memberTypes));
+            return this;
+        }
+
+        WiringPlan build(){
+            return new WiringPlan(this);
+        }
+    }
+
+    List<String> getClassNames() {
+        return classNames;
+    }
+
+    String getRepositoryImplementation(String interfaceName){
+        return repositoryImplementations.get(interfaceName);
+    }
+
+    Class[] getRepositoryGenericTypes(Class _interface){
+        String[] names = repositoryGenericTypes.get(_interface.getName());
+        if (names == null)
+            return null;
+
+        try {
+            return toClasses(names, _interface.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    // hands the recorded constructor and members to InjectionPlan, returns false when the class has to be reflected over
+    boolean restoreInjectionPlan(Class beanClass){
+        BeanWiring wiring = beans.get(beanClass.getName());
+        if (wiring == null)
+            return false;
+
+        try {
+            ClassLoader classLoader = beanClass.getClassLoader();
+            Constructor constructor = beanClass.getDeclaredConstructor(toClasses(wiring.constructorParameterTypes, classLoader));
+
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < wiring.memberNames.length; i++) {
+                if (wiring.memberKinds[i] == FIELD) {
+                    members.add(beanClass.getDeclaredField(wiring.memberNames[i]));
+                } else {
+                    members.add(beanClass.getDeclaredMethod(wiring.memberNames[i], toClasses(new String[] {wiring.memberTypes[i]}, classLoader)));
+                }
+            }
+
+            InjectionPlan.restore(beanClass, constructor, members);
+            return true;
+        } catch (ClassNotFoundException | NoSuchMethodException | NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    static WiringPlan read(Path file, String fingerprint) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long fileSize = Files.size(file);
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || !input.readUTF().equals(fingerprint))
+                return null;
+
+            Builder builder = new Builder();
+            int count = readCount(input, fileSize);
+            for (int i = 0; i < count; i++) {
+                builder.classNames.add(input.readUTF());
+            }
+
+            count = readCount(input, fileSize);
+            for (int i = 0; i < count; i++) {
+                builder.repositoryImplementations.put(input.readUTF(), input.readUTF());
+            }
+
+            count = readCount(input, fileSize);
+            for (int i = 0; i < count; i++) {
+                builder.repositoryGenericTypes.put(input.readUTF(), readNames(input, fileSize));
+            }
+
+            count = readCount(input, fileSize);
+            for (int i = 0; i < count; i++) {
+                String beanName = input.readUTF();
+                String[] constructorParameterTypes = readNames(input, fileSize);
+                int memberCount = readCount(input, fileSize);
+                byte[] memberKinds = new byte[memberCount];
+                String[] memberNames = new String[memberCount];
+                String[] memberTypes = new String[memberCount];
+                for (int j = 0; j < memberCount; j++) {
+                    memberKinds[j] = input.readByte();
+                    memberNames[j] = input.readUTF();
+                    memberTypes[j] = input.readUTF();
+                }
+                builder.beans.put(beanName, new BeanWiring(constructorParameterTypes, memberKinds, memberNames, memberTypes));
+            }
+
+            return builder.build();
+        } catch (NoSuchFileException | EOFException | UTFDataFormatException | RuntimeException e) {
+            // missing, truncated or corrupt plans are rebuilt
+            return null;
+        }
+    }
+
+    // written next to the target and moved over it, so a concurrent start never reads half a plan
+    void write(Path file, String fingerprint) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeUTF(fingerprint);
+
+                output.writeInt(classNames.size());
+                for (String className : classNames) {
+                    output.writeUTF(className);
+                }
+
+                output.writeInt(repositoryImplementations.size());
+                for (Map.Entry<String, String> entry : repositoryImplementations.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeUTF(entry.getValue());
+                }
+
+                output.writeInt(repositoryGenericTypes.size());
+                for (Map.Entry<String, String[]> entry : repositoryGenericTypes.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    writeNames(output, entry.getValue());
+                }
+
+                output.writeInt(beans.size());
+                for (Map.Entry<String, BeanWiring> entry : beans.entrySet()) {
+                    BeanWiring wiring = entry.getValue();
+                    output.writeUTF(entry.getKey());
+                    writeNames(output, wiring.constructorParameterTypes);
+                    output.writeInt(wiring.memberNames.length);
+                    for (int i = 0; i < wiring.memberNames.length; i++) {
+                        output.writeByte(wiring.memberKinds[i]);
+                        output.writeUTF(wiring.memberNames[i]);
+                        output.writeUTF(wiring.memberTypes[i]);
+                    }
+                }
+            }
+
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    // Hash of the base packages, the size and modification time of every jar on the class path,
+    // and of every file under the class path directories of the base packages.
+    static String fingerprint(ApplicationSettings settings) throws IOException, URISyntaxException {
+        Map<String, String> entries = new TreeMap<>();
+        for (String packageName : settings.getBasePackages()) {
+            entries.put("package:" + packageName, "");
+
+            Enumeration<URL> resources = settings.getClassLoader().getResources(packageName.replace('.', '/'));
+            while (resources.hasMoreElements()) {
+                URI uri = resources.nextElement().toURI();
+                if ("file".equals(uri.getScheme())) {
+                    addDirectory(Paths.get(uri), entries);
+                } else if ("jar".equals(uri.getScheme())) {
+                    String spec = uri.toString();
+                    addFile(Paths.get(URI.create(spec.substring("jar:".length(), spec.indexOf("!/")))), entries);
+                }
+            }
+        }
+
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (entry.endsWith(".jar"))
+                addFile(Paths.get(entry), entries);
+        }
+
+        // 64 bit FNV-1a; a message digest would cost more to initialize than the whole fingerprint
+        long hash = 0xcbf29ce484222325L;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            hash = fnv1a(hash, entry.getKey());
+            hash = fnv1a(hash, entry.getValue());
+        }
+
+        return entries.size() + "-" + Long.toHexString(hash);
+    }
+
+    private static long fnv1a(long hash, String value){
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // separates the strings
+        hash *= 0x100000001b3L;
+
+        return hash;
+    }
+
+    private static void addDirectory(Path directory, Map<String, String> entries) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            addFile(file, entries);
+        }
+    }
+
+    private static void addFile(Path file, Map<String, String> entries) throws IOException {
+        if (!Files.exists(file))
+            return;
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        entries.put(file.toAbsolutePath().toString(), attributes.size() + ":" + attributes.lastModifiedTime().toMillis());
+    }
+
+    // every entry takes at least one byte, a count beyond the file size comes from a corrupt plan
+    private static int readCount(DataInputStream input, long fileSize) throws IOException {
+        int count = input.readInt();
+        if (count < 0 || count > fileSize)
+            throw new EOFException("Corrupt wiring plan count " + count);
+
+        return count;
+    }
+
+    private static String[] readNames(DataInputStream input, long fileSize) throws IOException {
+        String[] names = new String[readCount(input, fileSize)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = input.readUTF();
+        }
+
+        return names;
+    }
+
+    private static void writeNames(DataOutputStream output, String[] names) throws IOException {
+        output.writeInt(names.length);
+        for (String name : names) {
+            output.writeUTF(name);
+        }
+    }
+
+    private static String[] toNames(Class[] classes){
+        String[] names = new String[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            names[i] = classes[i].getName();
+        }
+
+        return names;
+    }
+
+    private static Class[] toClasses(String[] names, ClassLoader classLoader) throws ClassNotFoundException {
+        Class[] classes = new Class[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Class primitiveType = PRIMITIVE_TYPES.get(names[i]);
+            classes[i] = primitiveType != null ? primitiveType : Class.forName(names[i], false, classLoader);
+        }
+
+        return classes;
+    }
+}
@@ -1,11 +1,13 @@
 package demo.disample.book_sample;
 
+import demo.disample.annotations.Cacheable;
 import demo.disample.annotations.Column;
 import demo.disample.annotations.Id;
 import demo.disample.annotations.Table;
 
 import java.util.Date;
 
+@Cacheable(maxSize = 100000, offHeapBytes = 16 * 1024 * 1024)
 @Table(name = "book")
 public class Book {
     @Id
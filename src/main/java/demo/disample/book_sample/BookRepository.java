@@ -1,7 +1,9 @@
 package demo.disample.book_sample;
 
+import demo.disample.annotations.CachedQuery;
 import demo.disample.beans.CrudRepository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -9,8 +11,11 @@ public interface BookRepository extends CrudRepository<Integer, Book> {
 
     List<Book> findByTitle(String title);
 
+    @CachedQuery(maxRows = 1000)
     List<Book> findByAuthorName(String authorName);
 
+    List<Book> findByAuthorNameIn(Collection<String> authorNames);
+
     List<Book> findByNumberOfPages(Integer numberOfPages);
 
     List<Book> findByPublicationDate(Date publicationDate);
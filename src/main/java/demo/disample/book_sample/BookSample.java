@@ -7,7 +7,7 @@ public class BookSample {
     public static void main(String[] args) {
         Application.run();
 
-        BookService service = (BookService) Application.getBean(BookService.class);
+        BookService service = Application.getBean(BookService.class);
         service.testAll();
     }
 
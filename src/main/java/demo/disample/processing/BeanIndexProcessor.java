@@ -0,0 +1,185 @@
+package demo.disample.processing;
+
+import demo.disample.beans.BeanIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+@SupportedAnnotationTypes("*")
+public class BeanIndexProcessor extends AbstractProcessor {
+
+    private static final String COMPONENT_ANNOTATION = "demo.disample.annotations.Component";
+    private static final String REPOSITORY_ANNOTATION = "demo.disample.annotations.Repository";
+    private static final String TABLE_ANNOTATION = "demo.disample.annotations.Table";
+    private static final String COLUMN_ANNOTATION = "demo.disample.annotations.Column";
+
+    private final Map<String, Set<String>> entries = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        for (Element element : roundEnv.getRootElements()) {
+            collect(element);
+        }
+
+        return false;
+    }
+
+    private void collect(Element element){
+        if (!(element instanceof TypeElement))
+            return;
+
+        TypeElement type = (TypeElement) element;
+        String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+
+        if (type.getKind() == ElementKind.INTERFACE) {
+            if (isRepository(type))
+                addEntry(className, BeanIndex.REPOSITORY);
+        } else if (type.getKind() == ElementKind.CLASS) {
+            if (hasAnnotation(type, COMPONENT_ANNOTATION))
+                addEntry(className, BeanIndex.COMPONENT);
+
+            if (implementsRepository(type))
+                addEntry(className, BeanIndex.REPOSITORY_IMPLEMENTATION);
+
+            if (hasAnnotation(type, TABLE_ANNOTATION) || hasAnnotatedField(type, COLUMN_ANNOTATION))
+                addEntry(className, BeanIndex.ENTITY);
+        }
+
+        for (Element enclosed : type.getEnclosedElements()) {
+            collect(enclosed);
+        }
+    }
+
+    private void addEntry(String className, String kind){
+        entries.computeIfAbsent(className, key -> new TreeSet<>()).add(kind);
+    }
+
+    private boolean isRepository(TypeElement type){
+        if (hasAnnotation(type, REPOSITORY_ANNOTATION))
+            return true;
+
+        for (TypeMirror superInterface : type.getInterfaces()) {
+            TypeElement element = asTypeElement(superInterface);
+            if (element != null && isRepository(element))
+                return true;
+        }
+
+        return false;
+    }
+
+    private boolean implementsRepository(TypeElement type){
+        for (TypeMirror superInterface : type.getInterfaces()) {
+            TypeElement element = asTypeElement(superInterface);
+            if (element != null && isRepository(element))
+                return true;
+        }
+
+        TypeElement superclass = asTypeElement(type.getSuperclass());
+        return superclass != null && implementsRepository(superclass);
+    }
+
+    private TypeElement asTypeElement(TypeMirror mirror){
+        if (mirror.getKind() != TypeKind.DECLARED)
+            return null;
+
+        return (TypeElement) ((DeclaredType) mirror).asElement();
+    }
+
+    private boolean hasAnnotatedField(TypeElement type, String annotationName){
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.FIELD && hasAnnotation(enclosed, annotationName))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName){
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName))
+                return true;
+        }
+
+        return false;
+    }
+
+    private void writeIndex(){
+        // incremental builds only hand us the changed types, so keep the rest of the previous index
+        Properties previous = readPreviousIndex();
+        for (String className : previous.stringPropertyNames()) {
+            if (entries.containsKey(className))
+                continue;
+            if (processingEnv.getElementUtils().getTypeElement(className.replace('$', '.')) == null)
+                continue;
+
+            for (String kind : previous.getProperty(className).split(",")) {
+                addEntry(className, kind.trim());
+            }
+        }
+
+        if (entries.isEmpty())
+            return;
+
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", BeanIndex.LOCATION);
+            try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Set<String>> entry : entries.entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write('=');
+                    writer.write(String.join(",", entry.getValue()));
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Error writing bean index: " + e.getMessage());
+        }
+    }
+
+    private Properties readPreviousIndex(){
+        Properties properties = new Properties();
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", BeanIndex.LOCATION);
+            try (InputStream stream = resource.openInputStream()) {
+                properties.load(stream);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // no previous index
+        }
+
+        return properties;
+    }
+
+}
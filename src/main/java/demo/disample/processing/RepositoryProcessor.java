@@ -0,0 +1,273 @@
+package demo.disample.processing;
+
+import demo.disample.beans.QueryPlan;
+import demo.disample.beans.SQLQueryBuilder;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Generates <Interface>_Impl for every CrudRepository sub-interface with concrete type arguments.
+// CrudRepository methods are inherited from CrudRepositoryImpl, findBy and streamBy methods are parsed here
+// into constant SQL with parameter placeholders, so a bad method name fails the build instead of the first call.
+@SupportedAnnotationTypes("*")
+public class RepositoryProcessor extends AbstractProcessor {
+
+    public static final String IMPLEMENTATION_SUFFIX = "_Impl";
+
+    private static final String CRUD_REPOSITORY = "demo.disample.beans.CrudRepository";
+    private static final String CRUD_REPOSITORY_IMPL = "demo.disample.beans.CrudRepositoryImpl";
+    private static final String TABLE_ANNOTATION = "demo.disample.annotations.Table";
+    private static final String COLUMN_ANNOTATION = "demo.disample.annotations.Column";
+    private static final String FIND_METHOD_PREFIX = "findBy";
+    private static final String STREAM_METHOD_PREFIX = "streamBy";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            process(type);
+        }
+
+        return false;
+    }
+
+    private void process(TypeElement type){
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            process(nested);
+        }
+
+        if (type.getKind() != ElementKind.INTERFACE || !type.getTypeParameters().isEmpty())
+            return;
+        if (type.getQualifiedName().contentEquals(CRUD_REPOSITORY))
+            return;
+
+        DeclaredType crudRepository = findSupertype(type.asType(), CRUD_REPOSITORY);
+        if (crudRepository == null)
+            return;
+
+        List<? extends TypeMirror> typeArguments = crudRepository.getTypeArguments();
+        if (typeArguments.size() != 2 || typeArguments.get(1).getKind() != TypeKind.DECLARED) {
+            error(type, "Repository " + type.getQualifiedName() + " must declare the id and entity types of CrudRepository");
+            return;
+        }
+
+        TypeElement entity = (TypeElement) ((DeclaredType) typeArguments.get(1)).asElement();
+        String tableName = getAnnotationValue(entity, TABLE_ANNOTATION);
+        if (tableName == null) {
+            error(type, "Entity type " + entity.getQualifiedName() + " of repository " + type.getQualifiedName() + " don't have @Table annotation");
+            return;
+        }
+
+        Map<String, String> fieldsToColumns = new HashMap<>();
+        for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+            String columnName = getAnnotationValue(field, COLUMN_ANNOTATION);
+            if (columnName != null)
+                fieldsToColumns.put(field.getSimpleName().toString(), columnName);
+        }
+
+        SQLQueryBuilder queryBuilder = new SQLQueryBuilder(fieldsToColumns);
+        List<String> methods = new ArrayList<>();
+        boolean valid = true;
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT))
+                continue;
+
+            TypeElement declaringType = (TypeElement) method.getEnclosingElement();
+            if (declaringType.getQualifiedName().contentEquals(CRUD_REPOSITORY))
+                continue;
+
+            String source = generateQueryMethod(type, method, typeArguments.get(1), tableName, queryBuilder);
+            if (source == null)
+                valid = false;
+            else
+                methods.add(source);
+        }
+
+        if (valid)
+            writeImplementation(type, typeArguments, methods);
+    }
+
+    private String generateQueryMethod(TypeElement repository, ExecutableElement method, TypeMirror entityType,
+                                       String tableName, SQLQueryBuilder queryBuilder){
+        String methodName = method.getSimpleName().toString();
+        if (!SQLQueryBuilder.isQueryMethod(methodName)) {
+            error(method, "Method " + methodName + " of repository " + repository.getQualifiedName() + " must be a CrudRepository method or start with '" + FIND_METHOD_PREFIX + "' or '" + STREAM_METHOD_PREFIX + "'");
+            return null;
+        }
+
+        boolean stream = SQLQueryBuilder.isStreamMethod(methodName);
+        TypeMirror resultType = processingEnv.getTypeUtils().getDeclaredType(
+                processingEnv.getElementUtils().getTypeElement(stream ? Stream.class.getName() : List.class.getName()), entityType);
+        if (!processingEnv.getTypeUtils().isAssignable(resultType, method.getReturnType())) {
+            error(method, "Method " + methodName + " must return " + resultType);
+            return null;
+        }
+
+        List<? extends VariableElement> parameters = method.getParameters();
+        QueryPlan queryPlan;
+        try {
+            queryPlan = queryBuilder.compileQuery(methodName, tableName);
+        } catch (ParseException | IllegalArgumentException e) {
+            error(method, e.getMessage());
+            return null;
+        }
+
+        if (queryPlan.getParameterCount() != parameters.size()) {
+            error(method, "Method " + methodName + " has " + parameters.size() + " parameters, but its name uses " + queryPlan.getParameterCount());
+            return null;
+        }
+
+        // an In condition binds the values of a collection
+        TypeMirror collectionType = processingEnv.getTypeUtils().erasure(
+                processingEnv.getElementUtils().getTypeElement(Collection.class.getName()).asType());
+        for (int i = 0; i < parameters.size(); i++) {
+            QueryPlan.Condition condition = queryPlan.getConditions().get(i);
+            if ("IN".equals(condition.getOperator())
+                    && !processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(parameters.get(i).asType()), collectionType)) {
+                error(method, "Parameter " + parameters.get(i).getSimpleName() + " of " + methodName + " must be a collection for the In condition on " + condition.getFieldName());
+                return null;
+            }
+        }
+
+        StringBuilder arguments = new StringBuilder(toLiteral(queryPlan.getSql())).append(", new Object[] {");
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0)
+                arguments.append(", ");
+            arguments.append(parameters.get(i).getSimpleName());
+        }
+        arguments.append('}');
+
+        StringBuilder source = new StringBuilder();
+        source.append("    @Override\n");
+        source.append("    public ").append(method.getReturnType()).append(' ').append(methodName).append('(');
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0)
+                source.append(", ");
+            source.append(parameters.get(i).asType()).append(' ').append(parameters.get(i).getSimpleName());
+        }
+        source.append(')');
+        if (!method.getThrownTypes().isEmpty()) {
+            source.append(" throws ");
+            for (int i = 0; i < method.getThrownTypes().size(); i++) {
+                if (i > 0)
+                    source.append(", ");
+                source.append(method.getThrownTypes().get(i));
+            }
+        }
+        source.append(" {\n");
+        source.append("        return ").append(stream ? "streamByQuery(" : "findByQuery(").append(arguments).append(");\n");
+        source.append("    }\n");
+
+        return source.toString();
+    }
+
+    private void writeImplementation(TypeElement repository, List<? extends TypeMirror> typeArguments, List<String> methods){
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(repository);
+        String packageName = packageElement.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(repository).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_') + IMPLEMENTATION_SUFFIX;
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(className, repository);
+            try (Writer writer = file.openWriter()) {
+                if (!packageName.isEmpty())
+                    writer.write("package " + packageName + ";\n\n");
+
+                writer.write("// Generated by " + getClass().getName() + " from " + repository.getQualifiedName() + "\n");
+                if (repository.getModifiers().contains(Modifier.PUBLIC))
+                    writer.write("public ");
+                writer.write("final class " + simpleName + " extends " + CRUD_REPOSITORY_IMPL
+                        + "<" + typeArguments.get(0) + ", " + typeArguments.get(1) + "> implements " + repository.getQualifiedName() + " {\n");
+                for (String method : methods) {
+                    writer.write("\n");
+                    writer.write(method);
+                }
+                writer.write("}\n");
+            }
+        } catch (IOException e) {
+            error(repository, "Error generating repository implementation: " + e.getMessage());
+        }
+    }
+
+    private DeclaredType findSupertype(TypeMirror type, String qualifiedName){
+        for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type)) {
+            if (supertype.getKind() != TypeKind.DECLARED)
+                continue;
+
+            DeclaredType declaredType = (DeclaredType) supertype;
+            if (((TypeElement) declaredType.asElement()).getQualifiedName().contentEquals(qualifiedName))
+                return declaredType;
+
+            DeclaredType found = findSupertype(supertype, qualifiedName);
+            if (found != null)
+                return found;
+        }
+
+        return null;
+    }
+
+    private static String getAnnotationValue(Element element, String annotationName){
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(annotationName))
+                continue;
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("name"))
+                    return entry.getValue().getValue().toString();
+            }
+        }
+
+        return null;
+    }
+
+    private static String toLiteral(String value){
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\')
+                literal.append('\\').append(c);
+            else if (c < ' ')
+                literal.append(String.format("\\u%04x", (int) c));
+            else
+                literal.append(c);
+        }
+
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message){
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -1,13 +1,20 @@
 package demo.disample.sample;
 
+import demo.disample.annotations.CachedQuery;
 import demo.disample.beans.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends CrudRepository<Integer, Product> {
 
+    @CachedQuery
     List<Product> findByNameAndPrice(String name, Double price);
     List<Product> findByPriceGreaterOrPriceNotLess(Double maxPrice, Double minPrice);
     List<Product> findByPriceGreaterOrEqualOrNameNotEqual(Double price, String name);
+    List<Product> findByIdIn(Collection<Integer> ids);
+
+    Stream<Product> streamByPriceGreater(Double price);
 
 }
@@ -1,9 +1,11 @@
 package demo.disample.sample;
 
+import demo.disample.annotations.Cacheable;
 import demo.disample.annotations.Column;
 import demo.disample.annotations.Id;
 import demo.disample.annotations.Table;
 
+@Cacheable
 @Table(name="users")
 public class User {
 
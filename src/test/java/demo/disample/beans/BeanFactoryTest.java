@@ -0,0 +1,214 @@
+package demo.disample.beans;
+
+import demo.disample.fixtures.constructor.Car;
+import demo.disample.fixtures.constructor.Engine;
+import demo.disample.fixtures.cycle.First;
+import demo.disample.fixtures.cycle.Second;
+import demo.disample.fixtures.datasource.NotesDataSource;
+import demo.disample.fixtures.indexed.IndexedService;
+import demo.disample.fixtures.indexed.NotIndexedService;
+import demo.disample.fixtures.lazy.Host;
+import demo.disample.fixtures.lazy.LazyGreeter;
+import demo.disample.fixtures.repository.Note;
+import demo.disample.fixtures.repository.NoteReader;
+import demo.disample.fixtures.repository.NoteRepository;
+import demo.disample.fixtures.repository.NoteWriter;
+import demo.disample.fixtures.setters.Left;
+import demo.disample.fixtures.unindexed.UnindexedService;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BeanFactoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // a class loader that finds only the given bean index, not the one written for the test classes
+    private static ClassLoader withBeanIndex(Path index) throws IOException {
+        URL url = index.toUri().toURL();
+        return new ClassLoader(BeanFactoryTest.class.getClassLoader()) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                if (name.equals(BeanIndex.LOCATION))
+                    return Collections.enumeration(Collections.singletonList(url));
+                return super.getResources(name);
+            }
+        };
+    }
+
+    @Test
+    public void testLoadBeans_PackageWithoutIndexEntriesIsScanned() throws Exception {
+        Path index = folder.newFile("disample.beans").toPath();
+        Files.write(index, (IndexedService.class.getName() + "=component\n").getBytes(StandardCharsets.UTF_8));
+
+        BeanFactory factory = new BeanFactory();
+        factory.loadBeans(new ApplicationSettings.Builder()
+                .addBasePackages("demo.disample.fixtures.indexed", "demo.disample.fixtures.unindexed")
+                .setClassLoader(withBeanIndex(index))
+                .build());
+
+        assertNotNull(factory.getBean(IndexedService.class));
+        assertNotNull(factory.getBean(UnindexedService.class));
+        // the index is all that is read of an indexed package
+        assertNull(factory.getBean(NotIndexedService.class));
+    }
+
+    private static BeanFactory load(String... basePackages) throws Exception {
+        return load(false, basePackages);
+    }
+
+    private static BeanFactory load(boolean lazyInitialization, String... basePackages) throws Exception {
+        BeanFactory factory = new BeanFactory();
+        factory.loadBeans(new ApplicationSettings.Builder()
+                .addBasePackages(basePackages)
+                .setLazyInitialization(lazyInitialization)
+                .build());
+        return factory;
+    }
+
+    @Test
+    public void testLoadBeans_AutowiredConstructorGetsItsDependency() throws Exception {
+        BeanFactory factory = load("demo.disample.fixtures.constructor");
+
+        Car car = factory.getBean(Car.class);
+        assertNotNull(car);
+        assertSame(factory.getBean(Engine.class), car.getEngine());
+    }
+
+    @Test
+    public void testLoadBeans_ConstructorCycle_ShouldReportPath() throws Exception {
+        try {
+            load("demo.disample.fixtures.cycle");
+            fail("Constructor cycle was not detected");
+        } catch (Exception e) {
+            String first = First.class.getName();
+            String second = Second.class.getName();
+            assertTrue(e.getMessage(), e.getMessage().equals("Circular constructor dependency found: " + first + " -> " + second + " -> " + first)
+                    || e.getMessage().equals("Circular constructor dependency found: " + second + " -> " + first + " -> " + second));
+        }
+    }
+
+    @Test
+    public void testLoadBeans_LazyBeanCreatedOnFirstProxyCall() throws Exception {
+        LazyGreeter.CREATED.set(0);
+        Host.CREATED.set(0);
+
+        BeanFactory factory = load("demo.disample.fixtures.lazy");
+        Host host = factory.getBean(Host.class);
+        assertEquals(1, Host.CREATED.get());
+        assertEquals(0, LazyGreeter.CREATED.get());
+
+        assertEquals("Hello, Ann", host.welcome("Ann"));
+        assertEquals(1, LazyGreeter.CREATED.get());
+
+        // the proxy and the context share the one instance
+        assertNotNull(factory.getBean(LazyGreeter.class));
+        host.welcome("Bob");
+        assertEquals(1, LazyGreeter.CREATED.get());
+    }
+
+    @Test
+    public void testLoadBeans_LazyInitializationCreatesBeansOnFirstGetBean() throws Exception {
+        LazyGreeter.CREATED.set(0);
+        Host.CREATED.set(0);
+
+        BeanFactory factory = load(true, "demo.disample.fixtures.lazy");
+        assertEquals(0, Host.CREATED.get());
+        assertEquals(0, LazyGreeter.CREATED.get());
+
+        Host host = factory.getBean(Host.class);
+        assertSame(host, factory.getBean(Host.class));
+        assertEquals(1, Host.CREATED.get());
+        // injected through its interface, so still a proxy
+        assertEquals(0, LazyGreeter.CREATED.get());
+
+        LazyGreeter greeter = factory.getBean(LazyGreeter.class);
+        assertSame(greeter, factory.getBean(LazyGreeter.class));
+        assertEquals(1, LazyGreeter.CREATED.get());
+        assertEquals("Hello, Ann", host.welcome("Ann"));
+        assertEquals(1, LazyGreeter.CREATED.get());
+    }
+
+    @Test
+    public void testLoadBeans_SetterCycle_WiredEagerlyAndLazily() throws Exception {
+        for (boolean lazyInitialization : new boolean[] {false, true}) {
+            BeanFactory factory = load(lazyInitialization, "demo.disample.fixtures.setters");
+
+            Left left = factory.getBean(Left.class);
+            assertNotNull(left.getRight());
+            assertSame(left, left.getRight().getLeft());
+        }
+    }
+
+    @Test
+    public void testLoadBeans_ComponentsShareOneRepository() throws Exception {
+        BeanFactory factory = load("demo.disample.fixtures.repository");
+
+        NoteRepository repository = factory.getBean(NoteReader.class).getNoteRepository();
+        assertNotNull(repository);
+        assertSame(repository, factory.getBean(NoteWriter.class).getNoteRepository());
+        assertSame(repository, factory.getBean(NoteRepository.class));
+    }
+
+    @Test
+    public void testLoadBeans_LazyInitialization_ComponentsShareOneRepository() throws Exception {
+        BeanFactory factory = load(true, "demo.disample.fixtures.repository");
+
+        NoteRepository repository = factory.getBean(NoteReader.class).getNoteRepository();
+        assertNotNull(repository);
+        assertSame(repository, factory.getBean(NoteWriter.class).getNoteRepository());
+    }
+
+    private static void execute(NotesDataSource dataSource, String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    @Test
+    public void testLoadBeans_ReloadedContextQueriesThroughNewPool() throws Exception {
+        ApplicationSettings settings = new ApplicationSettings.Builder()
+                .addBasePackages("demo.disample.fixtures.repository", "demo.disample.fixtures.datasource")
+                .build();
+        BeanFactory factory = new BeanFactory();
+        factory.loadBeans(settings);
+        execute(factory.getBean(NotesDataSource.class), "CREATE TABLE notes (id BIGINT PRIMARY KEY, text VARCHAR(100))");
+        try {
+            NoteReader reader = factory.getBean(NoteReader.class);
+            Note note = new Note();
+            note.setId(1);
+            note.setText("first");
+            reader.getNoteRepository().save(note);
+
+            factory.loadBeans(settings);
+
+            NoteRepository repository = factory.getBean(NoteRepository.class);
+            assertNotSame(reader.getNoteRepository(), repository);
+            assertNotSame(reader, factory.getBean(NoteReader.class));
+            assertSame(repository, factory.getBean(NoteReader.class).getNoteRepository());
+            assertEquals("first", repository.getOne(1L).getText());
+        } finally {
+            execute(factory.getBean(NotesDataSource.class), "DROP TABLE notes");
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package demo.disample.beans;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BeanIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGetClassNames_SkipsEntitiesAndOtherPackages() throws Exception {
+        Path root = folder.getRoot().toPath();
+        Path index = root.resolve(BeanIndex.LOCATION);
+        Files.createDirectories(index.getParent());
+        Files.write(index, ("a.Item=entity\n"
+                + "a.ItemRepository=repository\n"
+                + "a.ItemService=component\n"
+                + "a.sub.Worker=component\n"
+                + "ab.Other=component\n").getBytes(StandardCharsets.UTF_8));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {root.toUri().toURL()}, null)) {
+            BeanIndex beanIndex = BeanIndex.load(classLoader);
+
+            assertEquals(Arrays.asList("a.ItemRepository", "a.ItemService", "a.sub.Worker"), beanIndex.getClassNames("a"));
+        }
+    }
+
+    @Test
+    public void testLoad_NoIndex() throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {folder.getRoot().toURI().toURL()}, null)) {
+            assertNull(BeanIndex.load(classLoader));
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package demo.disample.beans;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class BeanRegistryTest {
+
+    interface Service {
+    }
+
+    interface Named {
+    }
+
+    static class FirstService implements Service, Named {
+    }
+
+    static class SecondService implements Service {
+    }
+
+    @Test
+    public void testGetBean_ByClassAndName() {
+        FirstService bean = new FirstService();
+        Map<String, Object> beans = new HashMap<>();
+        beans.put(FirstService.class.getName(), bean);
+
+        BeanRegistry registry = new BeanRegistry(beans);
+
+        assertSame(bean, registry.getBean(FirstService.class));
+        assertSame(bean, registry.getBean(FirstService.class.getName()));
+        assertNull(registry.getBean(SecondService.class));
+    }
+
+    @Test
+    public void testGetBean_BySuperType() {
+        FirstService first = new FirstService();
+        Map<String, Object> beans = new HashMap<>();
+        beans.put(FirstService.class.getName(), first);
+
+        BeanRegistry registry = new BeanRegistry(beans);
+
+        assertSame(first, registry.getBean(Service.class));
+        assertSame(first, registry.getBean(Named.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetBean_AmbiguousSuperType_ShouldThrowException() {
+        Map<String, Object> beans = new HashMap<>();
+        beans.put(FirstService.class.getName(), new FirstService());
+        beans.put(SecondService.class.getName(), new SecondService());
+
+        BeanRegistry registry = new BeanRegistry(beans);
+
+        registry.getBean(Service.class);
+    }
+
+    @Test
+    public void testGetBean_LazyInterfaceBean_ReturnsSharedProxy() {
+        LazyBean lazyBean = new LazyBean(Service.class, FirstService::new);
+        Map<String, Object> beans = new HashMap<>();
+        beans.put(Service.class.getName(), lazyBean);
+
+        BeanRegistry registry = new BeanRegistry(beans);
+
+        assertSame(lazyBean.getProxy(), registry.getBean(Service.class));
+        assertSame(lazyBean.getProxy(), registry.getBean(Service.class.getName()));
+        assertFalse(lazyBean.isCreated());
+    }
+}
@@ -0,0 +1,73 @@
+package demo.disample.beans;
+
+import demo.disample.annotations.Component;
+import demo.disample.annotations.Repository;
+import demo.disample.annotations.Table;
+import demo.disample.sample.Product;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClassFileReaderTest {
+
+    private static ClassFileMetadata read(Class clazz) throws IOException {
+        String resource = clazz.getName().replace('.', '/') + ".class";
+        try (InputStream stream = ClassFileReaderTest.class.getClassLoader().getResourceAsStream(resource)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+            return ClassFileReader.read(output.toByteArray(), resource);
+        }
+    }
+
+    @Test
+    public void testRead_Component() throws IOException {
+        ClassFileMetadata metadata = read(CrudRepositoryImpl.class);
+
+        assertEquals(CrudRepositoryImpl.class.getName(), metadata.getClassName());
+        assertEquals(Object.class.getName(), metadata.getSuperClassName());
+        assertEquals(Arrays.asList(CrudRepository.class.getName(), EntityMetadata.class.getName()), metadata.getInterfaceNames());
+        assertTrue(metadata.hasAnnotation(Component.class));
+        assertFalse(metadata.isInterface());
+    }
+
+    @Test
+    public void testRead_RepositoryInterface() throws IOException {
+        ClassFileMetadata metadata = read(CrudRepository.class);
+
+        assertTrue(metadata.isInterface());
+        assertTrue(metadata.hasAnnotation(Repository.class));
+        assertFalse(metadata.hasAnnotation(Component.class));
+    }
+
+    @Test
+    public void testRead_AnnotationWithValues() throws IOException {
+        ClassFileMetadata metadata = read(Product.class);
+
+        assertTrue(metadata.hasAnnotation(Table.class));
+        assertFalse(metadata.hasAnnotation(Component.class));
+    }
+
+    @Test
+    public void testRead_AnnotationType() throws IOException {
+        ClassFileMetadata metadata = read(Component.class);
+
+        assertTrue(metadata.isAnnotation());
+        assertTrue(metadata.isInterface());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_NotAClassFile_ShouldThrowException() throws IOException {
+        ClassFileReader.read(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, "garbage");
+    }
+}
@@ -0,0 +1,123 @@
+package demo.disample.beans;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClassPathScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // compiles the sources, given as class name and source pairs, into a new directory
+    private Path compile(String... classNamesAndSources) throws Exception {
+        Path sourceDir = folder.newFolder().toPath();
+        Path outputDir = folder.newFolder().toPath();
+
+        List<String> arguments = new ArrayList<>(Arrays.asList("-proc:none",
+                "-classpath", System.getProperty("java.class.path"), "-d", outputDir.toString()));
+        for (int i = 0; i < classNamesAndSources.length; i += 2) {
+            Path file = sourceDir.resolve(classNamesAndSources[i].replace('.', '/') + ".java");
+            Files.createDirectories(file.getParent());
+            Files.write(file, classNamesAndSources[i + 1].getBytes(StandardCharsets.UTF_8));
+            arguments.add(file.toString());
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        assertEquals(errors.toString(), 0, compiler.run(null, null, errors, arguments.toArray(new String[0])));
+
+        return outputDir;
+    }
+
+    // class loaders find packages in a jar through its directory entries, so those are written too
+    private Path jar(Path classesDir) throws Exception {
+        Path jar = folder.newFile("beans.jar").toPath();
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(classesDir)) {
+            paths = walk.filter(path -> !path.equals(classesDir)).sorted().collect(Collectors.toList());
+        }
+
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Path path : paths) {
+                String name = classesDir.relativize(path).toString().replace('\\', '/');
+                if (Files.isDirectory(path)) {
+                    output.putNextEntry(new JarEntry(name + "/"));
+                } else {
+                    output.putNextEntry(new JarEntry(name));
+                    Files.copy(path, (OutputStream) output);
+                }
+                output.closeEntry();
+            }
+        }
+
+        return jar;
+    }
+
+    private List<String> scan(ClassLoader classLoader, String... packageNames) throws Exception {
+        ApplicationSettings settings = new ApplicationSettings.Builder()
+                .addBasePackages(packageNames)
+                .setClassLoader(classLoader)
+                .build();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            return new ClassPathScanner(settings, pool).scanClassNames(Arrays.asList(packageNames));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testScanClassNames_DirectoryAndJar() throws Exception {
+        Path classesDir = compile(
+                "dirbeans.Service",
+                "package dirbeans; @demo.disample.annotations.Component public class Service {}",
+                "dirbeans.Helper",
+                "package dirbeans; public class Helper {}",
+                "dirbeans.web.Controller",
+                "package dirbeans.web; @demo.disample.annotations.Component public class Controller {}");
+        Path jarClassesDir = compile(
+                "jarbeans.Store",
+                "package jarbeans; @demo.disample.annotations.Repository public interface Store {}",
+                "jarbeans.StoreImpl",
+                "package jarbeans; public class StoreImpl implements Store {}",
+                "jarbeans.Worker",
+                "package jarbeans; @demo.disample.annotations.Component public class Worker {"
+                        + " @demo.disample.annotations.Component public static class Task {} static class Step {} }",
+                "jarbeans.Value",
+                "package jarbeans; public class Value {}");
+        Path jar = jar(jarClassesDir);
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {classesDir.toUri().toURL(), jar.toUri().toURL()},
+                ClassPathScannerTest.class.getClassLoader());
+        try {
+            assertEquals(Arrays.asList("dirbeans.Service", "dirbeans.web.Controller",
+                    "jarbeans.Store", "jarbeans.StoreImpl", "jarbeans.Worker", "jarbeans.Worker$Task"),
+                    scan(classLoader, "dirbeans", "jarbeans"));
+            assertEquals(Arrays.asList("dirbeans.web.Controller"), scan(classLoader, "dirbeans.web"));
+        } finally {
+            classLoader.close();
+        }
+    }
+
+}
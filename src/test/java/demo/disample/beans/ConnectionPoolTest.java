@@ -0,0 +1,93 @@
+package demo.disample.beans;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1");
+        pool = new ConnectionPool(dataSource, 2, 50, 5000, 1);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testBorrow_ReleasedConnectionIsReused() throws SQLException {
+        ConnectionPool.PooledConnection first = pool.borrow();
+        pool.release(first);
+
+        assertSame(first, pool.borrow());
+        assertEquals(1, pool.getMetrics().getTotalConnections());
+        assertEquals(1, pool.getMetrics().getActiveConnections());
+    }
+
+    @Test
+    public void testBorrow_PoolExhausted_ShouldTimeOut() throws SQLException {
+        pool.borrow();
+        pool.borrow();
+
+        try {
+            pool.borrow();
+            throw new AssertionError("Borrow should have timed out");
+        } catch (SQLTimeoutException e) {
+            // expected
+        }
+
+        ConnectionPoolMetrics metrics = pool.getMetrics();
+        assertEquals(2, metrics.getTotalConnections());
+        assertEquals(3, metrics.getBorrowCount());
+        assertEquals(1, metrics.getWaitCount());
+        assertEquals(1, metrics.getTimeoutCount());
+        assertTrue(metrics.getMaxWaitNanos() > 0);
+    }
+
+    @Test
+    public void testPrepareStatement_LeastRecentlyUsedStatementIsClosed() throws SQLException {
+        ConnectionPool.PooledConnection connection = pool.borrow();
+        PreparedStatement first = connection.prepareStatement("SELECT 1");
+        connection.releaseStatement("SELECT 1", first);
+
+        assertSame(first, connection.prepareStatement("SELECT 1"));
+
+        PreparedStatement second = connection.prepareStatement("SELECT 2");
+        connection.releaseStatement("SELECT 2", second);
+
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        assertEquals(1, pool.getMetrics().getStatementCacheHits());
+        assertEquals(2, pool.getMetrics().getStatementCacheMisses());
+    }
+
+    @Test
+    public void testBorrow_ClosedIdleConnection_ShouldBeReplaced() throws SQLException {
+        ConnectionPool.PooledConnection first = pool.borrow();
+        pool.release(first);
+        first.getConnection().close();
+
+        ConnectionPool.PooledConnection second = pool.borrow();
+
+        assertNotSame(first, second);
+        assertTrue(second.getConnection().isValid(1));
+        assertEquals(1, pool.getMetrics().getTotalConnections());
+    }
+}
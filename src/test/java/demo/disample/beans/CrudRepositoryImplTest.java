@@ -0,0 +1,467 @@
+package demo.disample.beans;
+
+import demo.disample.book_sample.Book;
+import demo.disample.sample.Product;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CrudRepositoryImplTest {
+
+    private ConnectionPool pool;
+    private QueryExecutor executor;
+    private CrudRepositoryImpl<Integer, Product> repository;
+
+    @Before
+    public void setUp() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:repository;DB_CLOSE_DELAY=-1");
+        pool = new ConnectionPool(dataSource, 2, 1000, 5000, 16);
+
+        executor = new QueryExecutor(2, 2);
+        executor.setConnectionPool(pool);
+        executor.executeUpdate("CREATE TABLE products (ID INT PRIMARY KEY, NAME VARCHAR(100), PRICE DOUBLE)", new Object[0]);
+
+        repository = new CrudRepositoryImpl<>();
+        repository.setGenericTypes(new Class[] {Integer.class, Product.class});
+        repository.setQueryExecutor(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.executeUpdate("DROP TABLE products", new Object[0]);
+        pool.close();
+    }
+
+    private static Product product(int id, String name, double price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(price);
+        return product;
+    }
+
+    @Test
+    public void testSave_InsertsNewAndUpdatesExistingEntity() throws Exception {
+        repository.save(product(1, "car", 20000.0));
+        repository.save(product(1, "car", 15000.0));
+
+        Product product = repository.getOne(1);
+        assertEquals("car", product.getName());
+        assertEquals(15000.0, product.getPrice(), 0.0);
+        assertEquals(1, repository.listAll().size());
+    }
+
+    @Test
+    public void testFindByConditions_MapsRows() throws Exception {
+        repository.save(product(1, "car", 20000.0));
+        repository.save(product(2, "bike", 500.0));
+        repository.save(product(3, "wire", 10.0));
+
+        List<Product> products = repository.findByConditions("findByPriceGreaterOrName", new Object[] {400.0, "wire"});
+
+        assertEquals(3, products.size());
+        assertEquals(1, repository.findByConditions("findByPriceLess", new Object[] {400.0}).size());
+    }
+
+    @Test
+    public void testFindByConditions_ValueIsBoundNotInlined() throws Exception {
+        repository.save(product(1, "it's", 1.0));
+
+        assertEquals(1, repository.findByConditions("findByName", new Object[] {"it's"}).size());
+        assertEquals(0, repository.findByConditions("findByName", new Object[] {"x' OR '1' = '1"}).size());
+    }
+
+    @Test
+    public void testSaveAll_UpdatesExistingAndInsertsMissingRowsInBatches() throws Exception {
+        repository.save(product(1, "car", 20000.0));
+
+        List<Product> saved = repository.saveAll(Arrays.asList(product(1, "car", 15000.0), product(2, "bike", 500.0),
+                product(3, "wire", 10.0), product(4, "lamp", 30.0), product(5, "desk", 200.0)));
+
+        assertEquals(5, saved.size());
+        assertEquals(5, repository.listAll().size());
+        assertEquals(15000.0, repository.getOne(1).getPrice(), 0.0);
+        assertEquals("desk", repository.getOne(5).getName());
+    }
+
+    @Test
+    public void testSaveAll_MissingRowsJoiningInsertsKeepBatchSize() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:repository;DB_CLOSE_DELAY=-1");
+        List<Integer> batchRows = Collections.synchronizedList(new ArrayList<>());
+        ConnectionPool batchingPool = new ConnectionPool(batching(dataSource, batchRows), 2, 1000, 5000, 16);
+        executor.executeUpdate("CREATE TABLE book (id INT, title VARCHAR(100), author_name VARCHAR(100), "
+                + "number_of_pages INT, publication_date DATE)", new Object[0]);
+        try {
+            QueryExecutor batchingExecutor = new QueryExecutor(2, 2);
+            batchingExecutor.setConnectionPool(batchingPool);
+            CrudRepositoryImpl<Integer, Book> books = new CrudRepositoryImpl<>();
+            books.setGenericTypes(new Class[] {Integer.class, Book.class});
+            books.setQueryExecutor(batchingExecutor);
+
+            // one new book waits while two updates of missing rows fill their batch and turn into inserts
+            books.saveAll(Arrays.asList(book(null, "new"), book(1, "first"), book(2, "second")));
+
+            assertEquals(3, books.listAll().size());
+            for (int rows : batchRows) {
+                assertTrue(String.valueOf(batchRows), rows <= 2);
+            }
+        } finally {
+            executor.executeUpdate("DROP TABLE book", new Object[0]);
+            batchingPool.close();
+        }
+    }
+
+    private static Book book(Integer id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        return book;
+    }
+
+    // records the number of rows of every batch executed on its connections
+    private static DataSource batching(DataSource dataSource, List<Integer> batchRows) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class[] {DataSource.class}, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            if (!(result instanceof Connection))
+                return result;
+
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] {Connection.class}, (connectionProxy, connectionMethod, connectionArgs) -> {
+                Object statement = invoke(result, connectionMethod, connectionArgs);
+                if (!(statement instanceof PreparedStatement))
+                    return statement;
+
+                int[] rows = new int[1];
+                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class[] {PreparedStatement.class}, (statementProxy, statementMethod, statementArgs) -> {
+                    if (statementMethod.getName().equals("addBatch"))
+                        rows[0]++;
+                    if (statementMethod.getName().equals("executeBatch")) {
+                        batchRows.add(rows[0]);
+                        rows[0] = 0;
+                    }
+                    return invoke(statement, statementMethod, statementArgs);
+                });
+            });
+        });
+    }
+
+    @Test
+    public void testDeleteAllById() throws Exception {
+        repository.saveAll(Arrays.asList(product(1, "car", 20000.0), product(2, "bike", 500.0), product(3, "wire", 10.0)));
+
+        repository.deleteAllById(Arrays.asList(1, 3, 4));
+
+        List<Product> products = repository.listAll();
+        assertEquals(1, products.size());
+        assertEquals(2, products.get(0).getId());
+    }
+
+    @Test
+    public void testStreamAll_ReleasesConnectionWhenClosed() throws Exception {
+        repository.saveAll(Arrays.asList(product(1, "car", 20000.0), product(2, "bike", 500.0), product(3, "wire", 10.0)));
+
+        try (Stream<Product> products = repository.streamAll()) {
+            assertEquals(1, products.limit(1).count());
+            assertEquals(1, pool.getMetrics().getActiveConnections());
+        }
+
+        assertEquals(0, pool.getMetrics().getActiveConnections());
+    }
+
+    @Test
+    public void testStreamByQuery_ReadToTheEnd_ReleasesConnection() throws Exception {
+        repository.saveAll(Arrays.asList(product(1, "car", 20000.0), product(2, "bike", 500.0), product(3, "wire", 10.0)));
+
+        List<String> names = repository.streamByQuery(repository.compileQuery("streamByPriceGreater"), new Object[] {100.0})
+                .map(Product::getName)
+                .sorted()
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("bike", "car"), names);
+        assertEquals(0, pool.getMetrics().getActiveConnections());
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        repository.save(product(1, "car", 20000.0));
+        repository.delete(1);
+
+        assertNull(repository.getOne(1));
+    }
+
+    @Test
+    public void testGetOne_CachedEntityIsCopiedAndDroppedOnSave() throws Exception {
+        repository.save(product(1, "car", 20000.0));
+
+        Product first = repository.getOne(1);
+        first.setPrice(1.0);
+        Product second = repository.getOne(1);
+        assertEquals(20000.0, second.getPrice(), 0.0);
+        assertEquals(1, repository.getCacheStatistics().getHitCount());
+
+        repository.save(product(1, "car", 15000.0));
+        assertEquals(15000.0, repository.getOne(1).getPrice(), 0.0);
+        assertEquals(2, repository.getCacheStatistics().getMissCount());
+    }
+
+    @Test
+    public void testFindByConditions_CachedResultDroppedOnTableWrite() throws Exception {
+        repository.cacheQueryResults("findByNameAndPrice", 100, 0);
+        repository.save(product(1, "car", 20000.0));
+
+        assertEquals(1, repository.findByConditions("findByNameAndPrice", new Object[] {"car", 20000.0}).size());
+        assertEquals(1, repository.findByConditions("findByNameAndPrice", new Object[] {"car", 20000.0}).size());
+        assertEquals(1, repository.getQueryCacheStatistics("findByNameAndPrice").getHitCount());
+
+        // another repository of the same table invalidates the result too
+        CrudRepositoryImpl<Integer, Product> other = new CrudRepositoryImpl<>();
+        other.setGenericTypes(new Class[] {Integer.class, Product.class});
+        other.setQueryExecutor(executor);
+        other.saveAll(Arrays.asList(product(2, "car", 20000.0)));
+
+        assertEquals(2, repository.findByConditions("findByNameAndPrice", new Object[] {"car", 20000.0}).size());
+        assertEquals(2, repository.getQueryCacheStatistics("findByNameAndPrice").getMissCount());
+    }
+
+    @Test
+    public void testFindByConditions_CachedInListKeptWhenCallerChangesList() throws Exception {
+        repository.cacheQueryResults("findByIdIn", 100, 0);
+        repository.saveAll(Arrays.asList(product(1, "car", 20000.0), product(2, "bike", 500.0)));
+
+        List<Integer> ids = new ArrayList<>(Arrays.asList(1));
+        assertEquals(1, repository.findByConditions("findByIdIn", new Object[] {ids}).size());
+        ids.add(2);
+
+        assertEquals(2, repository.findByConditions("findByIdIn", new Object[] {ids}).size());
+        assertEquals(1, repository.findByConditions("findByIdIn", new Object[] {Arrays.asList(1)}).size());
+        assertEquals(1, repository.getQueryCacheStatistics("findByIdIn").getHitCount());
+    }
+
+    @Test
+    public void testGetOne_CoalescedCallsReadTheirOwnEntity() throws Exception {
+        repository.coalesceGetOne(0, 4);
+        repository.saveAll(Arrays.asList(product(1, "car", 20000.0), product(2, "bike", 500.0)));
+
+        assertEquals("car", repository.getOne(1).getName());
+        assertEquals("bike", repository.getOne(2).getName());
+        assertNull(repository.getOne(3));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // runs the hook once, right after the next query has read its rows
+    private static Object intercept(Object target, Class type, AtomicReference<Runnable> afterQuery) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+
+            if (result instanceof Connection)
+                return intercept(result, Connection.class, afterQuery);
+            if (result instanceof PreparedStatement)
+                return intercept(result, PreparedStatement.class, afterQuery);
+            if (method.getName().equals("executeQuery")) {
+                Runnable hook = afterQuery.getAndSet(null);
+                if (hook != null)
+                    hook.run();
+            }
+            return result;
+        };
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class[] {type}, handler);
+    }
+
+    @Test
+    public void testGetOne_RowReadBeforeConcurrentSaveIsNotCached() throws Exception {
+        repository.save(product(1, "car", 20000.0));
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:repository;DB_CLOSE_DELAY=-1");
+        AtomicReference<Runnable> afterQuery = new AtomicReference<>();
+        ConnectionPool interceptedPool = new ConnectionPool((DataSource) intercept(dataSource, DataSource.class, afterQuery), 2, 1000, 5000, 16);
+        QueryExecutor interceptedExecutor = new QueryExecutor(2, 2);
+        interceptedExecutor.setConnectionPool(interceptedPool);
+        CrudRepositoryImpl<Integer, Product> intercepted = new CrudRepositoryImpl<>();
+        intercepted.setGenericTypes(new Class[] {Integer.class, Product.class});
+        intercepted.setQueryExecutor(interceptedExecutor);
+
+        // the save lands between the select of getOne and the put of its row into the cache
+        afterQuery.set(() -> {
+            Thread writer = new Thread(() -> {
+                try {
+                    intercepted.save(product(1, "car", 15000.0));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            assertEquals(20000.0, intercepted.getOne(1).getPrice(), 0.0);
+            assertNull(afterQuery.get());
+            assertEquals(15000.0, intercepted.getOne(1).getPrice(), 0.0);
+        } finally {
+            interceptedPool.close();
+        }
+    }
+
+    // at most four values per query
+    private CrudRepositoryImpl<Integer, Product> chunkedRepository() throws Exception {
+        return chunkedRepository(pool);
+    }
+
+    private static CrudRepositoryImpl<Integer, Product> chunkedRepository(ConnectionPool pool) throws Exception {
+        CrudRepositoryImpl<Integer, Product> chunked = new CrudRepositoryImpl<>();
+        chunked.setGenericTypes(new Class[] {Integer.class, Product.class});
+        QueryExecutor chunkedExecutor = new QueryExecutor(2, 2, 4, 2);
+        chunkedExecutor.setConnectionPool(pool);
+        chunked.setQueryExecutor(chunkedExecutor);
+        return chunked;
+    }
+
+    // records the SQL of every statement prepared on its connections
+    private static DataSource recording(DataSource dataSource, List<String> preparedSqls) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class[] {DataSource.class}, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            if (!(result instanceof Connection))
+                return result;
+
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] {Connection.class}, (connectionProxy, connectionMethod, connectionArgs) -> {
+                if (connectionMethod.getName().equals("prepareStatement"))
+                    preparedSqls.add((String) connectionArgs[0]);
+                return invoke(result, connectionMethod, connectionArgs);
+            });
+        });
+    }
+
+    @Test
+    public void testFindByConditions_ChunkedInListAndOtherValuesStayWithinLimit() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:repository;DB_CLOSE_DELAY=-1");
+        List<String> preparedSqls = Collections.synchronizedList(new ArrayList<>());
+        ConnectionPool recordingPool = new ConnectionPool(recording(dataSource, preparedSqls), 2, 1000, 5000, 16);
+        try {
+            CrudRepositoryImpl<Integer, Product> chunked = chunkedRepository(recordingPool);
+            List<Product> products = new ArrayList<>();
+            for (int id = 1; id <= 10; id++) {
+                products.add(product(id, id % 2 == 0 ? "even" : "odd", id));
+            }
+            chunked.saveAll(products);
+            preparedSqls.clear();
+
+            // chunks of three ids, never padded past the one value left beside them
+            List<Integer> ids = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 11);
+            assertEquals(5, chunked.findByConditions("findByIdInAndName", new Object[] {ids, "odd"}).size());
+
+            assertFalse(preparedSqls.isEmpty());
+            for (String sql : preparedSqls) {
+                assertTrue(sql, sql.chars().filter(c -> c == '?').count() <= 4);
+            }
+        } finally {
+            recordingPool.close();
+        }
+    }
+
+    @Test
+    public void testFindAllById_LongListReadInChunks() throws Exception {
+        CrudRepositoryImpl<Integer, Product> chunked = chunkedRepository();
+        List<Product> products = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            products.add(product(id, id % 2 == 0 ? "even" : "odd", id));
+        }
+        chunked.saveAll(products);
+
+        List<Integer> ids = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 11);
+        assertEquals(9, chunked.findAllById(ids).size());
+        assertEquals(0, chunked.findAllById(Collections.<Integer>emptyList()).size());
+
+        // every chunk also finds the rows of the Or condition, they are kept once
+        List<Product> found = chunked.findByConditions("findByIdInOrName", new Object[] {ids, "even"});
+        assertEquals(10, found.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFindAllById_ExecutorShutDown_ShouldThrowException() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:repository;DB_CLOSE_DELAY=-1");
+        CrudRepositoryImpl<Integer, Product> chunked = new CrudRepositoryImpl<>();
+        chunked.setGenericTypes(new Class[] {Integer.class, Product.class});
+        QueryExecutor chunkedExecutor = new QueryExecutor(2, 2, 4, 2);
+        chunkedExecutor.setConnectionPool(new ConnectionPool(dataSource, 2, 1000, 5000, 16));
+        chunked.setQueryExecutor(chunkedExecutor);
+        chunked.findAllById(Arrays.asList(1, 2, 3, 4, 5));
+
+        chunkedExecutor.shutdown();
+        chunked.findAllById(Arrays.asList(6, 7, 8, 9, 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindByConditions_LongNegatedInList_ShouldThrowException() throws Exception {
+        chunkedRepository().findByConditions("findByIdNotInAndName", new Object[] {Arrays.asList(1, 2, 3, 4, 5), "even"});
+    }
+
+    @Test
+    public void testFindByConditions_BindsDateParameter() throws Exception {
+        executor.executeUpdate("CREATE TABLE book (id INT PRIMARY KEY, title VARCHAR(100), author_name VARCHAR(100), "
+                + "number_of_pages INT, publication_date DATE)", new Object[0]);
+        try {
+            CrudRepositoryImpl<Integer, Book> books = new CrudRepositoryImpl<>();
+            books.setGenericTypes(new Class[] {Integer.class, Book.class});
+            books.setQueryExecutor(executor);
+
+            Date publicationDate = new SimpleDateFormat("yyyy-MM-dd").parse("2018-11-26");
+            Book book = new Book();
+            book.setId(1);
+            book.setTitle("title");
+            book.setNumberOfPages(123);
+            book.setPublicationDate(publicationDate);
+            books.save(book);
+
+            List<Book> found = books.findByConditions("findByPublicationDate", new Object[] {publicationDate});
+
+            assertEquals(1, found.size());
+            assertEquals(publicationDate.getTime(), found.get(0).getPublicationDate().getTime());
+            assertNull(found.get(0).getAuthorName());
+
+            // Book is cached off heap, the second read is decoded from the cache
+            books.getOne(1);
+            assertEquals(publicationDate.getTime(), books.getOne(1).getPublicationDate().getTime());
+            assertEquals(1, books.getCacheStatistics().getHitCount());
+        } finally {
+            executor.executeUpdate("DROP TABLE book", new Object[0]);
+        }
+    }
+}
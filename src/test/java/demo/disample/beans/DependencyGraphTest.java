@@ -0,0 +1,63 @@
+package demo.disample.beans;
+
+import demo.disample.annotations.Autowired;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyGraphTest {
+
+    static class Repository {
+    }
+
+    static class Service {
+        @Autowired
+        Service(Repository repository) {
+        }
+    }
+
+    static class Controller {
+        @Autowired
+        Controller(Service service, Repository repository) {
+        }
+    }
+
+    @Test
+    public void testBeanDefinition_AutowiredConstructor() throws Exception {
+        BeanDefinition definition = BeanDefinition.of(Controller.class);
+
+        assertArrayEquals(new Class[] {Service.class, Repository.class}, definition.getDependencyTypes());
+    }
+
+    @Test
+    public void testTopologicalOrder_DependenciesFirst() throws Exception {
+        BeanDefinition repository = BeanDefinition.of(Repository.class);
+        BeanDefinition service = BeanDefinition.of(Service.class);
+        BeanDefinition controller = BeanDefinition.of(Controller.class);
+
+        DependencyGraph graph = new DependencyGraph();
+        graph.addEdge(controller, service);
+        graph.addEdge(controller, repository);
+        graph.addEdge(service, repository);
+
+        List<BeanDefinition> order = graph.topologicalOrder();
+
+        assertTrue(order.indexOf(repository) < order.indexOf(service));
+        assertTrue(order.indexOf(service) < order.indexOf(controller));
+    }
+
+    @Test(expected = Exception.class)
+    public void testTopologicalOrder_Cycle_ShouldThrowException() throws Exception {
+        BeanDefinition service = BeanDefinition.of(Service.class);
+        BeanDefinition controller = BeanDefinition.of(Controller.class);
+
+        DependencyGraph graph = new DependencyGraph();
+        graph.addEdge(controller, service);
+        graph.addEdge(service, controller);
+
+        graph.topologicalOrder();
+    }
+}
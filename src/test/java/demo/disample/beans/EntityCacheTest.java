@@ -0,0 +1,53 @@
+package demo.disample.beans;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class EntityCacheTest {
+
+    @Test
+    public void testPut_ScanOfNewKeysKeepsKeyReadTwice() {
+        // one segment, four protected entries and one on probation
+        EntityCache<Integer, String> cache = new EntityCache<>(5, 0);
+        cache.put(1, "hot");
+        assertEquals("hot", cache.get(1));
+
+        for (int i = 2; i < 10; i++) {
+            cache.put(i, "cold");
+        }
+
+        assertEquals("hot", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("cold", cache.get(9));
+        assertEquals(7, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testGet_ExpiredEntryIsMissed() throws InterruptedException {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 1);
+        cache.put(1, "value");
+        Thread.sleep(5);
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    public void testGetStatistics_CountsHitsAndMisses() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 0);
+        cache.put(1, "value");
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+        cache.invalidate(1);
+        cache.get(1);
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+        assertEquals(0, statistics.getSize());
+        assertEquals(0.5, statistics.getHitRate(), 0.0);
+    }
+}
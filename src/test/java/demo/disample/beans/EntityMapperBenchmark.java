@@ -0,0 +1,92 @@
+package demo.disample.beans;
+
+import demo.disample.book_sample.Book;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Maps a result of 1000 Book rows the way the first JDBC mapper did, looking up every column label and
+// setting the field reflectively per row, and through the EntityMapper.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityMapperBenchmark {
+
+    private static final String SQL = "SELECT * FROM book";
+
+    private final Map<String, String> columnsToFields = new HashMap<>();
+    private final Map<String, Field> columnFields = new HashMap<>();
+    private SimpleResultSet resultSet;
+    private EntityMapper<Book> mapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        columnsToFields.put("id", "id");
+        columnsToFields.put("title", "title");
+        columnsToFields.put("author_name", "authorName");
+        columnsToFields.put("number_of_pages", "numberOfPages");
+        columnsToFields.put("publication_date", "publicationDate");
+        for (Map.Entry<String, String> entry : columnsToFields.entrySet()) {
+            Field field = Book.class.getDeclaredField(entry.getValue());
+            field.setAccessible(true);
+            columnFields.put(entry.getKey(), field);
+        }
+
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("title", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("author_name", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("number_of_pages", Types.INTEGER, 10, 0);
+        resultSet.addColumn("publication_date", Types.TIMESTAMP, 10, 0);
+        for (int i = 0; i < 1000; i++) {
+            resultSet.addRow(i, "title " + i, "author " + i, 100 + i, new Timestamp(i * 86400000L));
+        }
+
+        mapper = new EntityMapper<>(Book.class, columnsToFields);
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) throws Exception {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            Book book = Book.class.getDeclaredConstructor().newInstance();
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                Field field = columnFields.get(metaData.getColumnLabel(i));
+                if (field != null)
+                    field.set(book, resultSet.getObject(i));
+            }
+            blackhole.consume(book);
+        }
+    }
+
+    @Benchmark
+    public void entityMapper(Blackhole blackhole) throws Exception {
+        resultSet.beforeFirst();
+        QueryExecutor.RowMapper<Book> rowMapper = mapper.prepare(SQL, resultSet);
+        while (resultSet.next()) {
+            blackhole.consume(rowMapper.map(resultSet));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package demo.disample.beans;
+
+import demo.disample.book_sample.Book;
+import demo.disample.sample.Product;
+import demo.disample.sample.User;
+import org.h2.tools.SimpleResultSet;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class EntityMapperTest {
+
+    private static Map<String, String> columns(String... columnsAndFields) {
+        Map<String, String> columnsToFields = new HashMap<>();
+        for (int i = 0; i < columnsAndFields.length; i += 2) {
+            columnsToFields.put(columnsAndFields[i], columnsAndFields[i + 1]);
+        }
+        return columnsToFields;
+    }
+
+    private static <T> T mapFirstRow(EntityMapper<T> mapper, String sql, ResultSet resultSet) throws Exception {
+        QueryExecutor.RowMapper<T> rowMapper = mapper.prepare(sql, resultSet);
+        resultSet.next();
+        return rowMapper.map(resultSet);
+    }
+
+    @Test
+    public void testMap_Product() throws Exception {
+        EntityMapper<Product> mapper = new EntityMapper<>(Product.class, columns("ID", "id", "NAME", "name", "PRICE", "price"));
+
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("PRICE", Types.DOUBLE, 10, 0);
+        resultSet.addColumn("ID", Types.INTEGER, 10, 0);
+        resultSet.addColumn("EXTRA", Types.VARCHAR, 10, 0);
+        resultSet.addColumn("NAME", Types.VARCHAR, 10, 0);
+        resultSet.addRow(20000.0, 1, "ignored", "car");
+
+        Product product = mapFirstRow(mapper, "SELECT * FROM products", resultSet);
+
+        assertEquals(1, product.getId());
+        assertEquals("car", product.getName());
+        assertEquals(20000.0, product.getPrice(), 0.0);
+    }
+
+    @Test
+    public void testMap_User_LabelsMatchedIgnoringCase() throws Exception {
+        EntityMapper<User> mapper = new EntityMapper<>(User.class, columns("id", "id", "user_name", "username"));
+
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("ID", Types.BIGINT, 19, 0);
+        resultSet.addColumn("USER_NAME", Types.VARCHAR, 10, 0);
+        resultSet.addRow(5L, "admin");
+
+        User user = mapFirstRow(mapper, "SELECT * FROM users", resultSet);
+
+        assertEquals(5L, user.getId());
+        assertEquals("admin", user.getUsername());
+    }
+
+    @Test
+    public void testMap_Book_NullsAndDate() throws Exception {
+        EntityMapper<Book> mapper = new EntityMapper<>(Book.class, columns("id", "id", "title", "title",
+                "author_name", "authorName", "number_of_pages", "numberOfPages", "publication_date", "publicationDate"));
+
+        Timestamp publicationDate = Timestamp.valueOf("2018-11-26 00:00:00");
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("title", Types.VARCHAR, 10, 0);
+        resultSet.addColumn("author_name", Types.VARCHAR, 10, 0);
+        resultSet.addColumn("number_of_pages", Types.INTEGER, 10, 0);
+        resultSet.addColumn("publication_date", Types.TIMESTAMP, 10, 0);
+        resultSet.addRow(1, "title", null, null, publicationDate);
+
+        Book book = mapFirstRow(mapper, "SELECT * FROM book", resultSet);
+
+        assertEquals(Integer.valueOf(1), book.getId());
+        assertEquals("title", book.getTitle());
+        assertNull(book.getAuthorName());
+        assertNull(book.getNumberOfPages());
+        assertEquals(publicationDate, book.getPublicationDate());
+    }
+
+    @Test
+    public void testPrepare_ColumnsResolvedOncePerSql() throws Exception {
+        EntityMapper<Product> mapper = new EntityMapper<>(Product.class, columns("ID", "id"));
+
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("ID", Types.INTEGER, 10, 0);
+
+        assertSame(mapper.prepare("SELECT ID FROM products", resultSet), mapper.prepare("SELECT ID FROM products", resultSet));
+    }
+}
@@ -0,0 +1,74 @@
+package demo.disample.beans;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GetOneBatcherTest {
+
+    private final List<List<Object>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    // every id but 0 exists, its only column is the id
+    private Map<Object, Object[]> load(List<Object> ids) {
+        batches.add(new ArrayList<>(ids));
+        Map<Object, Object[]> rows = new HashMap<>();
+        for (Object id : ids) {
+            if (!id.equals(0))
+                rows.put(id, new Object[] {id});
+        }
+        return rows;
+    }
+
+    @Test
+    public void testLoad_ConcurrentCallsShareBatchesAndDuplicateIds() throws Exception {
+        GetOneBatcher batcher = new GetOneBatcher(this::load, TimeUnit.MILLISECONDS.toMicros(500), 100);
+        ExecutorService threads = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object[]>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                int id = i % 8;
+                results.add(threads.submit(() -> {
+                    start.await();
+                    return batcher.load(id);
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < 16; i++) {
+                Object[] values = results.get(i).get(5, TimeUnit.SECONDS);
+                if (i % 8 == 0)
+                    assertNull(values);
+                else
+                    assertEquals(i % 8, values[0]);
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        assertEquals(1, batches.size());
+        assertEquals(8, batches.get(0).size());
+    }
+
+    @Test
+    public void testLoad_FullBatchIsReadWithoutWaitingForWindow() {
+        GetOneBatcher batcher = new GetOneBatcher(this::load, TimeUnit.SECONDS.toMicros(10), 1);
+        long start = System.nanoTime();
+
+        assertEquals(5, batcher.load(5)[0]);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+}
@@ -0,0 +1,83 @@
+package demo.disample.beans;
+
+import demo.disample.annotations.Autowired;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+// Creates and wires one bean the way the reflective wireBeans did and through the compiled InjectionPlan.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InjectionPlanBenchmark {
+
+    public static class Service {
+        private Object first;
+        private Object second;
+        private Object third;
+
+        @Autowired
+        public void setFirst(Object first) {
+            this.first = first;
+        }
+
+        @Autowired
+        public void setSecond(Object second) {
+            this.second = second;
+        }
+
+        @Autowired
+        public void setThird(Object third) {
+            this.third = third;
+        }
+
+        public Object getFirst() {
+            return first;
+        }
+
+        public Object getSecond() {
+            return second;
+        }
+
+        public Object getThird() {
+            return third;
+        }
+    }
+
+    private final Object dependency = new Object();
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        Service service = Service.class.getDeclaredConstructor().newInstance();
+        for (Method method : Service.class.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Autowired.class)) {
+                method.invoke(service, dependency);
+            }
+        }
+
+        return service;
+    }
+
+    @Benchmark
+    public Object injectionPlan() throws Exception {
+        InjectionPlan plan = InjectionPlan.of(Service.class);
+        Object service = plan.newInstance(new Object[0]);
+        for (InjectionPlan.InjectionPoint injectionPoint : plan.getInjectionPoints()) {
+            injectionPoint.inject(service, dependency);
+        }
+
+        return service;
+    }
+}
@@ -0,0 +1,55 @@
+package demo.disample.beans;
+
+import demo.disample.annotations.Autowired;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class InjectionPlanTest {
+
+    static class Service {
+        @Autowired
+        private Object field;
+
+        private Object setterValue;
+        private Object privateSetterValue;
+
+        @Autowired
+        public void setSetterValue(Object setterValue) {
+            this.setterValue = setterValue;
+        }
+
+        @Autowired
+        private void setPrivateSetterValue(Object privateSetterValue) {
+            this.privateSetterValue = privateSetterValue;
+        }
+    }
+
+    static class InvalidService {
+        @Autowired
+        public void setValues(Object first, Object second) {
+        }
+    }
+
+    @Test
+    public void testInject_FieldsAndSetters() throws Exception {
+        InjectionPlan plan = InjectionPlan.of(Service.class);
+        Service service = (Service) plan.newInstance(new Object[0]);
+        Object dependency = new Object();
+
+        assertEquals(3, plan.getInjectionPoints().size());
+        for (InjectionPlan.InjectionPoint injectionPoint : plan.getInjectionPoints()) {
+            injectionPoint.inject(service, dependency);
+        }
+
+        assertSame(dependency, service.field);
+        assertSame(dependency, service.setterValue);
+        assertSame(dependency, service.privateSetterValue);
+    }
+
+    @Test(expected = Exception.class)
+    public void testOf_SetterWithTwoParameters_ShouldThrowException() throws Exception {
+        InjectionPlan.of(InvalidService.class);
+    }
+}
@@ -0,0 +1,116 @@
+package demo.disample.beans;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class LazyBeanTest {
+
+    @Test
+    public void testGet_ConcurrentCalls_CreateOnce() throws Exception {
+        AtomicInteger creations = new AtomicInteger();
+        LazyBean lazyBean = new LazyBean(Object.class, () -> {
+            creations.incrementAndGet();
+            return new Object();
+        });
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return lazyBean.get();
+                }));
+            }
+            start.countDown();
+
+            Object first = results.get(0).get();
+            for (Future<Object> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, creations.get());
+    }
+
+    @Test
+    public void testCreateProxy_CreatesBeanOnFirstCall() {
+        AtomicInteger creations = new AtomicInteger();
+        LazyBean lazyBean = new LazyBean(Supplier.class, () -> {
+            creations.incrementAndGet();
+            return (Supplier<String>) () -> "value";
+        });
+
+        Supplier proxy = (Supplier) lazyBean.createProxy(Supplier.class);
+        assertEquals(0, creations.get());
+
+        assertEquals("value", proxy.get());
+        assertEquals("value", proxy.get());
+        assertEquals(1, creations.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGet_CircularCreation_ShouldThrowException() {
+        LazyBean[] holder = new LazyBean[1];
+        holder[0] = new LazyBean(Object.class, () -> holder[0].get());
+
+        holder[0].get();
+    }
+
+    static class Node {
+        Object next;
+    }
+
+    @Test
+    public void testGet_CycleThroughInitializers_WiresBothBeans() {
+        LazyBean[] holders = new LazyBean[2];
+        holders[0] = new LazyBean(Node.class, Node::new, bean -> ((Node) bean).next = holders[1].get());
+        holders[1] = new LazyBean(Node.class, Node::new, bean -> ((Node) bean).next = holders[0].get());
+
+        Node first = (Node) holders[0].get();
+        Node second = (Node) first.next;
+        assertSame(second, holders[1].get());
+        assertSame(first, second.next);
+    }
+
+    @Test
+    public void testGetProxy_ConcurrentCalls_ShareOneProxy() throws Exception {
+        LazyBean lazyBean = new LazyBean(Supplier.class, () -> (Supplier<String>) () -> "value");
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return lazyBean.getProxy();
+                }));
+            }
+            start.countDown();
+
+            Object first = results.get(0).get();
+            for (Future<Object> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package demo.disample.beans;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LongIntIndexTest {
+
+    @Test
+    public void testRemove_KeysOfSameRunStayReachable() {
+        LongIntIndex index = new LongIntIndex(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long key = random.nextInt(500);
+            if (random.nextBoolean()) {
+                index.put(key, i);
+                expected.put(key, i);
+            } else {
+                index.remove(key);
+                expected.remove(key);
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        for (long key = 0; key < 500; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? -1 : value, index.get(key));
+        }
+    }
+}
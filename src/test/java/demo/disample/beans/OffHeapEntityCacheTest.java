@@ -0,0 +1,74 @@
+package demo.disample.beans;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class OffHeapEntityCacheTest {
+
+    private static final Class[] COLUMN_TYPES = {int.class, String.class, Double.class, BigDecimal.class, Date.class, boolean.class};
+
+    private static OffHeapEntityCache cache(long maxBytes, int maxSize) throws Exception {
+        return new OffHeapEntityCache(new EntityCodec(Object.class, COLUMN_TYPES), maxBytes, maxSize, 0);
+    }
+
+    private static Object[] values(int id, String name) {
+        return new Object[] {id, name, null, new BigDecimal("12.50"), new Date(1543190400000L), true};
+    }
+
+    @Test
+    public void testGet_DecodesNewCopyOfValues() throws Exception {
+        OffHeapEntityCache cache = cache(1024, 10);
+        Object[] values = values(1, "café");
+        cache.put(1, values);
+
+        Object[] cached = cache.get(1);
+        assertArrayEquals(values, cached);
+        assertNotSame(values[4], cached[4]);
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    public void testPut_FullRingReclaimsOldestRecords() throws Exception {
+        // room for a little more than three records
+        OffHeapEntityCache cache = cache(200, 100);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, values(i, "name " + i));
+        }
+
+        assertNull(cache.get(0));
+        assertNull(cache.get(6));
+        assertEquals("name 9", cache.get(9)[1]);
+        assertEquals(3, cache.getStatistics().getSize());
+        assertEquals(7, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testPut_RewrittenAndInvalidatedIdsAreNotServed() throws Exception {
+        OffHeapEntityCache cache = cache(1024, 2);
+        cache.put(1, values(1, "old"));
+        cache.put(1, values(1, "new"));
+        cache.put(2, values(2, "other"));
+        cache.invalidate(2);
+
+        assertEquals("new", cache.get(1)[1]);
+        assertNull(cache.get(2));
+
+        cache.put(3, values(3, "third"));
+        cache.put(4, values(4, "fourth"));
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(4));
+    }
+
+    @Test(expected = Exception.class)
+    public void testCodec_UnsupportedColumnType_ShouldThrowException() throws Exception {
+        new EntityCodec(Object.class, new Class[] {Object.class});
+    }
+}
@@ -0,0 +1,57 @@
+package demo.disample.beans;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class QueryResultCacheTest {
+
+    private static Object[][] rows(int count) {
+        return new Object[count][0];
+    }
+
+    @Test
+    public void testGet_ResultOfOlderTableVersionIsMissed() {
+        QueryResultCache cache = new QueryResultCache(10, 0);
+        cache.put(Collections.<Object>singletonList("car"), 1, rows(2));
+
+        assertNotNull(cache.get(Collections.<Object>singletonList("car"), 1));
+        assertNull(cache.get(Collections.<Object>singletonList("car"), 2));
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    public void testPut_LeastRecentlyUsedResultsExceedingBudgetAreDropped() {
+        QueryResultCache cache = new QueryResultCache(5, 0);
+        cache.put(Arrays.<Object>asList("a"), 0, rows(2));
+        cache.put(Arrays.<Object>asList("b"), 0, rows(2));
+        cache.get(Arrays.<Object>asList("a"), 0);
+        cache.put(Arrays.<Object>asList("c"), 0, rows(2));
+        cache.put(Arrays.<Object>asList("d"), 0, rows(6));
+
+        assertNotNull(cache.get(Arrays.<Object>asList("a"), 0));
+        assertNull(cache.get(Arrays.<Object>asList("b"), 0));
+        assertNotNull(cache.get(Arrays.<Object>asList("c"), 0));
+        assertNull(cache.get(Arrays.<Object>asList("d"), 0));
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testPut_LargeBudgetSplitAcrossSegments() {
+        QueryResultCache cache = new QueryResultCache(4096, 0);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(Collections.<Object>singletonList(i), 0, rows(1));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertNotNull(cache.get(Collections.<Object>singletonList(i), 0));
+        }
+        assertEquals(1000, cache.getStatistics().getSize());
+        assertEquals(1000, cache.getStatistics().getHitCount());
+    }
+}
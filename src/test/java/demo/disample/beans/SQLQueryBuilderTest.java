@@ -3,6 +3,8 @@ package demo.disample.beans;
 import org.junit.Test;
 
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,10 +14,7 @@ public class SQLQueryBuilderTest {
 
     @Test(expected = NullPointerException.class)
     public void testBuildUpdateQuery_TableNameIsNull_ShouldThrowException() {
-        Map<String, String> fields = new HashMap<>();
-        fields.put("field", "value");
-
-        SQLQueryBuilder.buildUpdateQuery(null, fields);
+        SQLQueryBuilder.buildUpdateQuery(null, Collections.singletonList("field"));
     }
 
     @Test(expected = NullPointerException.class)
@@ -25,34 +24,22 @@ public class SQLQueryBuilderTest {
 
     @Test(expected = IllegalArgumentException.class)
     public void testBuildUpdateQuery_FieldsIsEmpty_ShouldThrowException() {
-        Map<String, String> fields = new HashMap<>();
-
-        SQLQueryBuilder.buildUpdateQuery("table", fields);
+        SQLQueryBuilder.buildUpdateQuery("table", Collections.<String>emptyList());
     }
 
     @Test
     public void testBuildUpdateQuery_OneField() {
-        Map<String, String> fields = new HashMap<>();
-        fields.put("field", "value");
-
-        assertEquals(SQLQueryBuilder.buildUpdateQuery("table", fields), "UPDATE table SET field = 'value'");
+        assertEquals(SQLQueryBuilder.buildUpdateQuery("table", Collections.singletonList("field")), "UPDATE table SET field = ?");
     }
 
     @Test
     public void testBuildUpdateQuery_TwoField() {
-        Map<String, String> fields = new HashMap<>();
-        fields.put("field1", "value1");
-        fields.put("field2", "value2");
-
-        assertEquals(SQLQueryBuilder.buildUpdateQuery("table", fields), "UPDATE table SET field1 = 'value1', field2 = 'value2'");
+        assertEquals(SQLQueryBuilder.buildUpdateQuery("table", Arrays.asList("field1", "field2")), "UPDATE table SET field1 = ?, field2 = ?");
     }
 
     @Test(expected = NullPointerException.class)
     public void testBuildInsertQuery_TableNameIsNull_ShouldThrowException() {
-        Map<String, String> fields = new HashMap<>();
-        fields.put("field", "value");
-
-        SQLQueryBuilder.buildInsertQuery(null, fields);
+        SQLQueryBuilder.buildInsertQuery(null, Collections.singletonList("field"));
     }
 
     @Test(expected = NullPointerException.class)
@@ -62,26 +49,50 @@ public class SQLQueryBuilderTest {
 
     @Test(expected = IllegalArgumentException.class)
     public void testBuildInsertQuery_FieldsIsEmpty_ShouldThrowException() {
-        Map<String, String> fields = new HashMap<>();
-
-        SQLQueryBuilder.buildInsertQuery("table", fields);
+        SQLQueryBuilder.buildInsertQuery("table", Collections.<String>emptyList());
     }
 
     @Test
     public void testBuildInsertQuery_OneField() {
-        Map<String, String> fields = new HashMap<>();
-        fields.put("field", "value");
-
-        assertEquals(SQLQueryBuilder.buildInsertQuery("table", fields), "INSERT INTO table (field) VALUES ('value')");
+        assertEquals(SQLQueryBuilder.buildInsertQuery("table", Collections.singletonList("field")), "INSERT INTO table (field) VALUES (?)");
     }
 
     @Test
     public void testBuildInsertQuery_TwoField() {
-        Map<String, String> fields = new HashMap<>();
-        fields.put("field1", "value1");
-        fields.put("field2", "value2");
+        assertEquals(SQLQueryBuilder.buildInsertQuery("table", Arrays.asList("field1", "field2")), "INSERT INTO table (field1, field2) VALUES (?, ?)");
+    }
+
+    @Test
+    public void testBuildQueries_ReusedBufferStartsEmpty() {
+        String select = SQLQueryBuilder.buildSelectQuery("table");
+        String filter = SQLQueryBuilder.buildIdFilter("ID");
+
+        assertEquals("SELECT * FROM table", select);
+        assertEquals(" WHERE ID = ?", filter);
+        assertEquals("DELETE FROM table", SQLQueryBuilder.buildDeleteQuery("table"));
+    }
+
+    @Test
+    public void testBuildInFilter_PlaceholderPerValue() {
+        assertEquals(" WHERE ID IN (?)", SQLQueryBuilder.buildInFilter("ID", 1));
+        assertEquals(" WHERE ID IN (?, ?, ?)", SQLQueryBuilder.buildInFilter("ID", 3));
+    }
+
+    @Test
+    public void testExpandInLists_PlaceholderPerValue() {
+        String sql = "SELECT * FROM table WHERE A = ? AND NOT B IN (?) OR C IN (?)";
+
+        assertEquals("SELECT * FROM table WHERE A = ? AND NOT B IN (?, ?, ?) OR C IN (?)",
+                SQLQueryBuilder.expandInLists(sql, new int[] {-1, 3, 1}));
+        assertEquals("SELECT * FROM table WHERE A = ? AND NOT 1 = 0 OR C IN (?, ?)",
+                SQLQueryBuilder.expandInLists(sql, new int[] {-1, 0, 2}));
+        assertEquals(true, SQLQueryBuilder.isNegatedInList(sql, 1));
+        assertEquals(false, SQLQueryBuilder.isNegatedInList(sql, 2));
+    }
 
-        assertEquals(SQLQueryBuilder.buildInsertQuery("table", fields), "INSERT INTO table (field1, field2) VALUES ('value1', 'value2')");
+    @Test(expected = IllegalArgumentException.class)
+    public void testExpandInLists_CollectionOfScalarCondition_ShouldThrowException() {
+        SQLQueryBuilder.expandInLists("SELECT * FROM table WHERE A = ?", new int[] {2});
     }
 
     @Test(expected = NullPointerException.class)
@@ -143,7 +154,7 @@ public class SQLQueryBuilderTest {
         Object[] values = {"value"};
 
         SQLQueryBuilder builder = new SQLQueryBuilder();
-        assertEquals(builder.parseQuery("findByKnownField", fields, values), " KNOWN_FIELD = 'value'");
+        assertEquals(builder.parseQuery("findByKnownField", fields, values), " KNOWN_FIELD = ?");
     }
 
     @Test(expected = ParseException.class)
@@ -175,7 +186,7 @@ public class SQLQueryBuilderTest {
         Object[] values = {1, 2};
 
         SQLQueryBuilder builder = new SQLQueryBuilder();
-        assertEquals(builder.parseQuery("findByField1NotLess", fields, values), " NOT FIELD1 < '1'");
+        assertEquals(builder.parseQuery("findByField1NotLess", fields, values), " NOT FIELD1 < ?");
     }
 
     @Test(expected = ParseException.class)
@@ -197,7 +208,7 @@ public class SQLQueryBuilderTest {
         Object[] values = {1, 2};
 
         SQLQueryBuilder builder = new SQLQueryBuilder();
-        assertEquals(builder.parseQuery("findByField1AndField2", fields, values), " FIELD1 = '1' AND FIELD2 = '2'");
+        assertEquals(builder.parseQuery("findByField1AndField2", fields, values), " FIELD1 = ? AND FIELD2 = ?");
     }
 
     @Test
@@ -208,7 +219,7 @@ public class SQLQueryBuilderTest {
         Object[] values = {1, 2};
 
         SQLQueryBuilder builder = new SQLQueryBuilder();
-        assertEquals(builder.parseQuery("findByField1OrField2", fields, values), " FIELD1 = '1' OR FIELD2 = '2'");
+        assertEquals(builder.parseQuery("findByField1OrField2", fields, values), " FIELD1 = ? OR FIELD2 = ?");
     }
 
     @Test(expected = ParseException.class)
@@ -243,4 +254,45 @@ public class SQLQueryBuilderTest {
         SQLQueryBuilder builder = new SQLQueryBuilder();
         builder.parseQuery("findByField1OrField2", fields, values);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompileQuery_PlaceholderPerParameter() throws ParseException {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("field1", "FIELD1");
+        fields.put("field2", "FIELD2");
+
+        SQLQueryBuilder builder = new SQLQueryBuilder();
+        QueryPlan plan = builder.compileQuery("findByField1NotLessOrField2", "table", fields);
+
+        assertEquals(2, plan.getParameterCount());
+        assertEquals("OR", plan.getConditions().get(1).getLogicalOperator());
+        assertEquals("SELECT * FROM table WHERE NOT FIELD1 < ? OR FIELD2 = ?", plan.getSql());
+    }
+
+    @Test
+    public void testCompileQuery_InCondition() throws ParseException {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("id", "ID");
+        fields.put("index", "IDX");
+
+        SQLQueryBuilder builder = new SQLQueryBuilder(fields);
+
+        assertEquals("SELECT * FROM table WHERE ID IN (?) OR NOT IDX IN (?)",
+                builder.compileQuery("findByIdInOrIndexNotIn", "table").getSql());
+    }
+
+    @Test
+    public void testCompileQuery_FieldNameIsPrefixOfAnother_LongestMatchWins() throws ParseException {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("price", "PRICE");
+        fields.put("priceMax", "PRICE_MAX");
+        fields.put("less", "LESS");
+
+        SQLQueryBuilder builder = new SQLQueryBuilder(fields);
+
+        assertEquals("SELECT * FROM table WHERE PRICE_MAX < ? AND PRICE = ?",
+                builder.compileQuery("findByPriceMaxLessAndPrice", "table").getSql());
+        assertEquals("SELECT * FROM table WHERE NOT PRICE <> ? OR LESS = ?",
+                builder.compileQuery("findByPriceNotNotEqualOrLess", "table").getSql());
+    }
+}
@@ -0,0 +1,39 @@
+package demo.disample.beans;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class StartupReportTest {
+
+    @Test
+    public void testGetSlowestBeans_SortedByTotalTime() {
+        Map<StartupReport.Phase, Long> phases = new EnumMap<>(StartupReport.Phase.class);
+        phases.put(StartupReport.Phase.SCAN, 5L);
+
+        StartupReport report = new StartupReport(100, phases, Arrays.asList(
+                new StartupReport.BeanTiming("fast", 1, 1),
+                new StartupReport.BeanTiming("slow", 10, 30),
+                new StartupReport.BeanTiming("medium", 20, 0)));
+
+        assertEquals(2, report.getSlowestBeans(2).size());
+        assertEquals("slow", report.getSlowestBeans(2).get(0).getBeanName());
+        assertEquals("medium", report.getSlowestBeans(2).get(1).getBeanName());
+        assertEquals(3, report.getSlowestBeans(10).size());
+        assertEquals(5, report.getPhaseNanos(StartupReport.Phase.SCAN));
+        assertEquals(0, report.getPhaseNanos(StartupReport.Phase.WIRING));
+    }
+
+    @Test
+    public void testToString_ListsSlowestBeans() {
+        StartupReport report = new StartupReport(2000000, new EnumMap<>(StartupReport.Phase.class), Arrays.asList(
+                new StartupReport.BeanTiming("fast", 0, 0),
+                new StartupReport.BeanTiming("slow", 1000000, 0)));
+
+        assertEquals("Started in 2.000ms:, slowest beans: [slow 1.000ms (instantiation 1.000ms, wiring 0.000ms)]", report.toString(1));
+    }
+}
@@ -0,0 +1,76 @@
+package demo.disample.beans;
+
+import demo.disample.annotations.Autowired;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WiringPlanTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static class Service {
+        @Autowired
+        private Object field;
+
+        @Autowired
+        public void setValue(Object value) {
+        }
+    }
+
+    @Test
+    public void testWriteAndRead_SameFingerprint() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("plan.bin");
+        new WiringPlan.Builder()
+                .addClassNames(Arrays.asList("a.First", "a.Second"))
+                .addRepository(Runnable.class, Thread.class, new Class[] {Long.class, String.class})
+                .addBean(Service.class)
+                .build()
+                .write(file, "fingerprint");
+
+        WiringPlan plan = WiringPlan.read(file, "fingerprint");
+
+        assertEquals(Arrays.asList("a.First", "a.Second"), plan.getClassNames());
+        assertEquals(Thread.class.getName(), plan.getRepositoryImplementation(Runnable.class.getName()));
+        assertEquals(Arrays.asList(Long.class, String.class), Arrays.asList(plan.getRepositoryGenericTypes(Runnable.class)));
+        assertTrue(plan.restoreInjectionPlan(Service.class));
+        assertFalse(plan.restoreInjectionPlan(Object.class));
+    }
+
+    @Test
+    public void testRead_ChangedFingerprintOrMissingFile_ReturnsNull() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("plan.bin");
+        assertNull(WiringPlan.read(file, "fingerprint"));
+
+        new WiringPlan.Builder().build().write(file, "fingerprint");
+
+        assertNull(WiringPlan.read(file, "changed"));
+    }
+
+    @Test
+    public void testRead_CorruptCount_ReturnsNull() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("plan.bin");
+        new WiringPlan.Builder().build().write(file, "fingerprint");
+
+        // the class name count right after the header
+        byte[] bytes = Files.readAllBytes(file);
+        int countOffset = 4 + 4 + 2 + "fingerprint".length();
+        for (int value : new int[] {-1, Integer.MAX_VALUE}) {
+            ByteBuffer.wrap(bytes).putInt(countOffset, value);
+            Files.write(file, bytes);
+
+            assertNull(WiringPlan.read(file, "fingerprint"));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package demo.disample.fixtures.constructor;
+
+import demo.disample.annotations.Autowired;
+import demo.disample.annotations.Component;
+
+@Component
+public class Car {
+    private final Engine engine;
+
+    @Autowired
+    public Car(Engine engine) {
+        this.engine = engine;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,7 @@
+package demo.disample.fixtures.constructor;
+
+import demo.disample.annotations.Component;
+
+@Component
+public class Engine {
+}
@@ -0,0 +1,11 @@
+package demo.disample.fixtures.cycle;
+
+import demo.disample.annotations.Autowired;
+import demo.disample.annotations.Component;
+
+@Component
+public class Second {
+    @Autowired
+    public Second(First first) {
+    }
+}
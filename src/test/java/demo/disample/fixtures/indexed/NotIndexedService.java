@@ -0,0 +1,7 @@
+package demo.disample.fixtures.indexed;
+
+import demo.disample.annotations.Component;
+
+@Component
+public class NotIndexedService {
+}
@@ -0,0 +1,5 @@
+package demo.disample.fixtures.lazy;
+
+public interface Greeter {
+    String greet(String name);
+}
@@ -0,0 +1,23 @@
+package demo.disample.fixtures.lazy;
+
+import demo.disample.annotations.Autowired;
+import demo.disample.annotations.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class Host {
+    public static final AtomicInteger CREATED = new AtomicInteger();
+
+    private final Greeter greeter;
+
+    @Autowired
+    public Host(Greeter greeter) {
+        this.greeter = greeter;
+        CREATED.incrementAndGet();
+    }
+
+    public String welcome(String name) {
+        return greeter.greet(name);
+    }
+}
@@ -0,0 +1,21 @@
+package demo.disample.fixtures.lazy;
+
+import demo.disample.annotations.Component;
+import demo.disample.annotations.Lazy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Lazy
+@Component
+public class LazyGreeter implements Greeter {
+    public static final AtomicInteger CREATED = new AtomicInteger();
+
+    public LazyGreeter() {
+        CREATED.incrementAndGet();
+    }
+
+    @Override
+    public String greet(String name) {
+        return "Hello, " + name;
+    }
+}
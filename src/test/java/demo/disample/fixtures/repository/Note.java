@@ -0,0 +1,32 @@
+package demo.disample.fixtures.repository;
+
+import demo.disample.annotations.Column;
+import demo.disample.annotations.Id;
+import demo.disample.annotations.Table;
+
+@Table(name="notes")
+public class Note {
+
+    @Id
+    @Column(name = "id")
+    private long id;
+
+    @Column(name = "text")
+    private String text;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
@@ -0,0 +1,6 @@
+package demo.disample.fixtures.repository;
+
+import demo.disample.beans.CrudRepository;
+
+public interface NoteRepository extends CrudRepository<Long, Note> {
+}
@@ -0,0 +1,18 @@
+package demo.disample.fixtures.repository;
+
+import demo.disample.annotations.Autowired;
+import demo.disample.annotations.Component;
+
+@Component
+public class NoteWriter {
+    private NoteRepository noteRepository;
+
+    @Autowired
+    public void setNoteRepository(NoteRepository noteRepository) {
+        this.noteRepository = noteRepository;
+    }
+
+    public NoteRepository getNoteRepository() {
+        return noteRepository;
+    }
+}
@@ -0,0 +1,18 @@
+package demo.disample.fixtures.setters;
+
+import demo.disample.annotations.Autowired;
+import demo.disample.annotations.Component;
+
+@Component
+public class Left {
+    private Right right;
+
+    @Autowired
+    public void setRight(Right right) {
+        this.right = right;
+    }
+
+    public Right getRight() {
+        return right;
+    }
+}
@@ -0,0 +1,18 @@
+package demo.disample.fixtures.setters;
+
+import demo.disample.annotations.Autowired;
+import demo.disample.annotations.Component;
+
+@Component
+public class Right {
+    private Left left;
+
+    @Autowired
+    public void setLeft(Left left) {
+        this.left = left;
+    }
+
+    public Left getLeft() {
+        return left;
+    }
+}
@@ -0,0 +1,7 @@
+package demo.disample.fixtures.unindexed;
+
+import demo.disample.annotations.Component;
+
+@Component
+public class UnindexedService {
+}
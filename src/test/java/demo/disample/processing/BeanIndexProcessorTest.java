@@ -0,0 +1,90 @@
+package demo.disample.processing;
+
+import demo.disample.beans.BeanIndex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BeanIndexProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path writeSource(Path sourceDir, String className, String source) throws Exception {
+        Path file = sourceDir.resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(file.getParent());
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private Properties compile(String... classNamesAndSources) throws Exception {
+        Path sourceDir = folder.newFolder("src").toPath();
+        Path outputDir = folder.newFolder("classes").toPath();
+
+        List<String> arguments = new ArrayList<>(Arrays.asList("-proc:only", "-processor", BeanIndexProcessor.class.getName(),
+                "-classpath", System.getProperty("java.class.path"), "-d", outputDir.toString()));
+        for (int i = 0; i < classNamesAndSources.length; i += 2) {
+            arguments.add(writeSource(sourceDir, classNamesAndSources[i], classNamesAndSources[i + 1]).toString());
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        assertEquals(errors.toString(), 0, compiler.run(null, null, errors, arguments.toArray(new String[0])));
+
+        Properties index = new Properties();
+        try (InputStream stream = Files.newInputStream(outputDir.resolve(BeanIndex.LOCATION))) {
+            index.load(stream);
+        }
+        return index;
+    }
+
+    @Test
+    public void testIndex_ListsBeanCandidatesAndEntities() throws Exception {
+        Properties index = compile(
+                "a.Item",
+                "package a; import demo.disample.annotations.*; @Table(name = \"items\") public class Item { @Id @Column(name = \"id\") Integer id; }",
+                "a.ItemRepository",
+                "package a; import demo.disample.beans.CrudRepository; public interface ItemRepository extends CrudRepository<Integer, Item> {}",
+                "a.ItemService",
+                "package a; import demo.disample.annotations.Component; @Component public class ItemService {}",
+                "a.Helper",
+                "package a; public class Helper {}");
+
+        assertEquals(BeanIndex.REPOSITORY, index.getProperty("a.ItemRepository"));
+        assertEquals(BeanIndex.COMPONENT, index.getProperty("a.ItemService"));
+        assertEquals(BeanIndex.ENTITY, index.getProperty("a.Item"));
+        assertNull(index.getProperty("a.Helper"));
+    }
+
+    @Test
+    public void testIndex_NestedComponentAndRepositoryImplementation() throws Exception {
+        Properties index = compile(
+                "b.Outer",
+                "package b; import demo.disample.annotations.Component; public class Outer { @Component public static class Inner {} }",
+                "b.Store",
+                "package b; import demo.disample.annotations.Repository; @Repository public interface Store {}",
+                "b.StoreImpl",
+                "package b; public class StoreImpl implements Store {}");
+
+        assertEquals(BeanIndex.COMPONENT, index.getProperty("b.Outer$Inner"));
+        assertEquals(BeanIndex.REPOSITORY, index.getProperty("b.Store"));
+        assertEquals(BeanIndex.REPOSITORY_IMPLEMENTATION, index.getProperty("b.StoreImpl"));
+        assertNull(index.getProperty("b.Outer"));
+    }
+
+}